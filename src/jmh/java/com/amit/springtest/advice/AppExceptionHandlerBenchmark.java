@@ -0,0 +1,50 @@
+package com.amit.springtest.advice;
+
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.bean.ErrorVo;
+import com.amit.springtest.controller.ContentController;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppExceptionHandlerBenchmark {
+
+    private AppExceptionHandler handler;
+
+    private IllegalArgumentException illegalArgumentException;
+
+    private MethodArgumentNotValidException validationException;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        handler = new AppExceptionHandler();
+        illegalArgumentException = new IllegalArgumentException("Content not present");
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(new ContentVo(), "content");
+        bindingResult.addError(new FieldError("content", "title", "Title is mandatory"));
+        MethodParameter parameter = new MethodParameter(ContentController.class.getMethod("addContent", ContentVo.class, String.class), 0);
+        validationException = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public List<ErrorVo> handleIllegalArgumentException() {
+        return handler.handleIllegalArgumentException(illegalArgumentException);
+    }
+
+    @Benchmark
+    public List<ErrorVo> handleValidationException() {
+        return handler.handleValidationException(validationException);
+    }
+
+}
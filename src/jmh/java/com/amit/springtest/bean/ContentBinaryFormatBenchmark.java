@@ -0,0 +1,71 @@
+package com.amit.springtest.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against CBOR for a list of 10k contents, both mappers built the way WebConfig builds them.
+ * Encoded payload sizes are printed once per fork, since JMH only reports times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentBinaryFormatBenchmark {
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    @Param({"10000"})
+    public int size;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private List<ContentVo> contents;
+
+    private byte[] encoded;
+
+    private final ContentSerializationBenchmark.DiscardingOutputStream outputStream = new ContentSerializationBenchmark.DiscardingOutputStream();
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("cbor".equals(format))
+            builder.factory(new CBORFactory());
+        ObjectMapper objectMapper = builder.build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ContentVo.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ContentVo.class));
+        contents = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            contents.add(new ContentVo(i, "Mission Impossible " + i, "Ethan Hunt and his IMF team, part " + i, 1996L + i % 30));
+        }
+        encoded = writer.writeValueAsBytes(contents);
+        System.out.println(String.format("%n%s payload for %d contents: %d bytes", format, size, encoded.length));
+    }
+
+    @Benchmark
+    public long serializeContents() throws IOException {
+        outputStream.count = 0;
+        writer.writeValue(outputStream, contents);
+        return outputStream.count;
+    }
+
+    @Benchmark
+    public List<ContentVo> deserializeContents() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.amit.springtest.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a content list, configured the way Spring MVC configures its ObjectMapper.
+ * The output is discarded so that only encoding is measured, not buffer growth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ContentSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ObjectWriter writer;
+
+    private List<ContentVo> contents;
+
+    private final DiscardingOutputStream outputStream = new DiscardingOutputStream();
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ContentVo.class));
+        contents = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            contents.add(new ContentVo(i, "Mission Impossible " + i, "Ethan Hunt and his IMF team, part " + i, 1996L + i % 30));
+        }
+    }
+
+    @Benchmark
+    public long serializeContents() throws IOException {
+        outputStream.count = 0;
+        writer.writeValue(outputStream, contents);
+        return outputStream.count;
+    }
+
+    static class DiscardingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
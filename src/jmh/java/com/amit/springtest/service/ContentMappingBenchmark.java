@@ -0,0 +1,37 @@
+package com.amit.springtest.service;
+
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.entity.Content;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentMappingBenchmark {
+
+    private Content entity;
+
+    private ContentVo vo;
+
+    @Setup
+    public void setUp() {
+        entity = new Content(1L, "Mission Impossible", "Ethan Hunt and his IMF team", 1996L);
+        vo = new ContentVo(1L, "Mission Impossible", "Ethan Hunt and his IMF team", 1996L);
+    }
+
+    @Benchmark
+    public ContentVo getVo() {
+        return ContentService.getVo(entity);
+    }
+
+    @Benchmark
+    public Content getEntity() {
+        return ContentService.getEntity(vo);
+    }
+
+}
@@ -1,13 +1,19 @@
 package com.amit.springtest;
 
+import com.amit.springtest.config.ContentProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
+@EnableConfigurationProperties(ContentProperties.class)
 public class MainApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(MainApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(MainApplication.class, args);
+        if (context.getBean(ContentProperties.class).isExitAfterStart())
+            System.exit(SpringApplication.exit(context));
     }
 
 }
@@ -1,6 +1,10 @@
 package com.amit.springtest.advice;
 
 import com.amit.springtest.bean.ErrorVo;
+import com.amit.springtest.limit.RateLimitExceededException;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -8,8 +12,10 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
@@ -19,21 +25,59 @@ public class AppExceptionHandler {
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseBody
     public List<ErrorVo> handleIllegalArgumentException(IllegalArgumentException exception) {
-        List<ErrorVo> errors = new ArrayList<>();
-        ErrorVo vo = new ErrorVo(exception.getClass().getCanonicalName());
-        vo.setMessage(exception.getMessage());
-        errors.add(vo);
-        return errors;
+        countError(exception, HttpStatus.BAD_REQUEST);
+        return getErrors(exception);
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    public List<ErrorVo> handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        countError(exception, HttpStatus.PRECONDITION_FAILED);
+        return getErrors(exception);
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseBody
+    public List<ErrorVo> handleRejectedExecutionException(RejectedExecutionException exception) {
+        countError(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        return getErrors(exception);
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseBody
+    public List<ErrorVo> handleRateLimitExceededException(RateLimitExceededException exception, HttpServletResponse response) {
+        countError(exception, HttpStatus.TOO_MANY_REQUESTS);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        return getErrors(exception);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseBody
     public List<ErrorVo> handleValidationException(MethodArgumentNotValidException exception) {
+        countError(exception, HttpStatus.BAD_REQUEST);
         List<ErrorVo> errors = new ArrayList<>();
         return exception.getBindingResult().getFieldErrors().stream().
                 map(e -> new ErrorVo(e.getField(), e.getDefaultMessage(), MethodArgumentNotValidException.class.getCanonicalName())).
                 collect(Collectors.toList());
     }
 
+    private List<ErrorVo> getErrors(Exception exception) {
+        List<ErrorVo> errors = new ArrayList<>();
+        ErrorVo vo = new ErrorVo(exception.getClass().getCanonicalName());
+        vo.setMessage(exception.getMessage());
+        errors.add(vo);
+        return errors;
+    }
+
+    /**
+     * Counted on the global registry, which Spring Boot backs with the application registry, so the advice stays usable in @WebMvcTest slices.
+     */
+    private void countError(Exception exception, HttpStatus status) {
+        Metrics.counter("content.api.errors", "exception", exception.getClass().getSimpleName(), "status", String.valueOf(status.value())).increment();
+    }
+
 }
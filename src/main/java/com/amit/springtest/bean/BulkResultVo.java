@@ -0,0 +1,25 @@
+package com.amit.springtest.bean;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkResultVo {
+
+    public enum Status {CREATED, UPDATED, INVALID}
+
+    private int index;
+
+    private Long id;
+
+    private Status status;
+
+    private List<ErrorVo> errors;
+
+}
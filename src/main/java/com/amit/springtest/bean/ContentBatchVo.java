@@ -0,0 +1,19 @@
+package com.amit.springtest.bean;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContentBatchVo {
+
+    /** Found contents in the order their ids were asked for */
+    private List<ContentVo> contents;
+
+    /** Asked for ids without a content */
+    private List<Long> missing;
+
+}
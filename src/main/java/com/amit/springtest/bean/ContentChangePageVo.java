@@ -0,0 +1,18 @@
+package com.amit.springtest.bean;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContentChangePageVo {
+
+    private List<ContentChangeVo> changes;
+
+    /** Token to send as since on the next call, unchanged when there was nothing new */
+    private Long nextSince;
+
+}
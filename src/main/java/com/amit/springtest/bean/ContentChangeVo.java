@@ -0,0 +1,25 @@
+package com.amit.springtest.bean;
+
+import com.amit.springtest.entity.ContentChange;
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContentChangeVo {
+
+    private Long seq;
+
+    private Long id;
+
+    private ContentChange.Operation operation;
+
+    /** The content as written, null for a delete */
+    private ContentVo content;
+
+    private Instant changedAt;
+
+}
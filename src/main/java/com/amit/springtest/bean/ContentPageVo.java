@@ -0,0 +1,17 @@
+package com.amit.springtest.bean;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ContentPageVo {
+
+    private List<ContentVo> contents;
+
+    private Long nextCursor;
+
+}
@@ -23,4 +23,11 @@ public class ContentVo implements Serializable {
 
     private Long yearOfRelease;
 
+    @JsonIgnore
+    private Long version;
+
+    public ContentVo(Long id, String title, String description, Long yearOfRelease) {
+        this(id, title, description, yearOfRelease, null);
+    }
+
 }
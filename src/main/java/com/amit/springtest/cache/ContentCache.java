@@ -0,0 +1,101 @@
+package com.amit.springtest.cache;
+
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.config.ContentProperties;
+import com.amit.springtest.routing.RoutingContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of single contents keyed by id.
+ * Missing ids are cached as well, but only for the shorter negative time to live.
+ */
+@Component
+public class ContentCache implements MeterBinder {
+
+    private final Cache<Long, Optional<ContentVo>> cache;
+
+    public ContentCache(ContentProperties contentProperties) {
+        ContentProperties.Cache properties = contentProperties.getCache();
+        long ttl = properties.getTtl().toNanos();
+        long negativeTtl = properties.getNegativeTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<Long, Optional<ContentVo>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<ContentVo> content, long currentTime) {
+                        return content.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<ContentVo> content, long currentTime, long currentDuration) {
+                        return content.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<ContentVo> content, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached content, loading it at most once per id when absent. A null from the loader is cached as a miss.
+     */
+    public ContentVo get(Long id, Function<Long, ContentVo> loader) {
+        return cache.get(id, key -> Optional.ofNullable(RoutingContext.sharedRead(() -> loader.apply(key)))).orElse(null);
+    }
+
+    /**
+     * Returns the cached contents of the ids, loading all absent ones with a single call to the loader.
+     * Ids the loader does not return are cached as misses and have no entry in the result.
+     */
+    public Map<Long, ContentVo> getAll(Collection<Long> ids, Function<List<Long>, Map<Long, ContentVo>> loader) {
+        Map<Long, Optional<ContentVo>> cached = cache.getAll(ids, keys -> {
+            List<Long> absent = new ArrayList<>();
+            keys.forEach(absent::add);
+            Map<Long, ContentVo> loaded = RoutingContext.sharedRead(() -> loader.apply(absent));
+            Map<Long, Optional<ContentVo>> entries = new HashMap<>(absent.size() * 2);
+            for (Long id : absent)
+                entries.put(id, Optional.ofNullable(loaded.get(id)));
+            return entries;
+        });
+        Map<Long, ContentVo> contents = new HashMap<>(cached.size() * 2);
+        cached.forEach((id, content) -> content.ifPresent(vo -> contents.put(id, vo)));
+        return contents;
+    }
+
+    public void invalidate(Long id) {
+        if (id != null)
+            cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "content");
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.amit.springtest.cache;
+
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.routing.RoutingContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content lists serialized to JSON and gzipped once, then served as the same byte arrays until any write invalidates them.
+ * Every invalidation starts a new generation, and a snapshot built from data read in an older generation is dropped
+ * instead of being kept, so a write racing with a build can never leave a stale snapshot behind.
+ */
+@Component
+public class ContentListSnapshots {
+
+    private final ObjectWriter writer;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public ContentListSnapshots(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ContentVo.class));
+    }
+
+    public Snapshot get(String key, Supplier<List<ContentVo>> loader) {
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null)
+            return snapshot;
+
+        long buildGeneration = generation.get();
+        snapshot = build(RoutingContext.sharedRead(loader));
+        if (generation.get() == buildGeneration) {
+            Snapshot existing = snapshots.putIfAbsent(key, snapshot);
+            if (existing != null)
+                return existing;
+            if (generation.get() != buildGeneration)
+                snapshots.remove(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    private Snapshot build(List<ContentVo> contents) {
+        try {
+            byte[] json = writer.writeValueAsBytes(contents);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream outputStream = new GZIPOutputStream(gzip)) {
+                outputStream.write(json);
+            }
+            return new Snapshot(json, gzip.toByteArray(), "\"0" + DigestUtils.md5DigestAsHex(json) + '"');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The byte arrays are shared by every response served from this snapshot and must not be modified.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private final String eTag;
+
+    }
+
+}
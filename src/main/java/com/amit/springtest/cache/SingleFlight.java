@@ -0,0 +1,78 @@
+package com.amit.springtest.cache;
+
+import com.amit.springtest.routing.RoutingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent calls for the same key share one load: the first caller runs it, callers arriving while it is in flight
+ * wait for its result, or its exception, instead of running their own. Nothing is kept once the load is done, so no result
+ * is ever older than a call that was already running when the caller arrived.
+ */
+public class SingleFlight<K, V> {
+
+    static final String CALLS_METRIC = "content.single-flight.calls";
+
+    static final String IN_FLIGHT_METRIC = "content.single-flight.in-flight";
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry registry) {
+        this.executed = registry.counter(CALLS_METRIC, "name", name, "outcome", "executed");
+        this.coalesced = registry.counter(CALLS_METRIC, "name", name, "outcome", "coalesced");
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, ConcurrentMap::size).tag("name", name).register(registry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        try {
+            V value = RoutingContext.sharedRead(loader);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Calls arriving from now on start a new load instead of joining one that may have read data a write has just replaced.
+     * Callers already waiting still get the result of the load they joined.
+     */
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+}
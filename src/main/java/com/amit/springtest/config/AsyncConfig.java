@@ -0,0 +1,49 @@
+package com.amit.springtest.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Configuration
+public class AsyncConfig {
+
+    public static final String CONTENT_EXECUTOR = "contentExecutor";
+
+    /**
+     * Executor for the asynchronous content endpoints. Both variants reject work with a RejectedExecutionException once
+     * content.async.concurrency-limit calls are running and content.async.queue-capacity more are waiting.
+     */
+    @Bean(name = CONTENT_EXECUTOR)
+    public Executor contentExecutor(ContentProperties contentProperties) {
+        ContentProperties.Async properties = contentProperties.getAsync();
+        ExecutorService virtualThreads = properties.isVirtualThreads() ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreads != null) {
+            log.info("Content executor runs on virtual threads");
+            return new BoundedExecutor(virtualThreads, properties.getConcurrencyLimit(), properties.getQueueCapacity());
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getConcurrencyLimit());
+        executor.setMaxPoolSize(properties.getConcurrencyLimit());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("content-async-");
+        return executor;
+    }
+
+    /**
+     * The project compiles for Java 8, so virtual threads (Java 21) can only be reached reflectively.
+     */
+    private ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+}
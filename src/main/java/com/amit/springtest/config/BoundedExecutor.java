@@ -0,0 +1,54 @@
+package com.amit.springtest.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Puts the limits of a bounded thread pool on an unbounded executor such as a virtual thread per task executor:
+ * at most concurrencyLimit tasks run at once, at most queueCapacity more wait, and anything beyond that is rejected.
+ * Waiting tasks block on their own (cheap) thread instead of sitting in a queue.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore admission;
+
+    private final Semaphore concurrency;
+
+    public BoundedExecutor(ExecutorService delegate, int concurrencyLimit, int queueCapacity) {
+        this.delegate = delegate;
+        this.admission = new Semaphore(concurrencyLimit + queueCapacity);
+        this.concurrency = new Semaphore(concurrencyLimit);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admission.tryAcquire())
+            throw new RejectedExecutionException("Content executor is saturated");
+        try {
+            delegate.execute(() -> {
+                try {
+                    concurrency.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        concurrency.release();
+                    }
+                } finally {
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.amit.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "content")
+public class ContentProperties {
+
+    /** Close the application right after it has started, used for the class data sharing training run */
+    private boolean exitAfterStart = false;
+
+    private final Page page = new Page();
+
+    private final Export export = new Export();
+
+    private final Cache cache = new Cache();
+
+    private final Bulk bulk = new Bulk();
+
+    private final Async async = new Async();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Snapshot snapshot = new Snapshot();
+
+    private final WarmUp warmUp = new WarmUp();
+
+    private final Client client = new Client();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    private final Changes changes = new Changes();
+
+    private final BatchGet batchGet = new BatchGet();
+
+    private final Replicas replicas = new Replicas();
+
+    private final Shards shards = new Shards();
+
+    @Data
+    public static class Page {
+
+        /** Page size used when a keyset page is requested without a limit */
+        private int defaultSize = 50;
+
+        /** Hard upper bound for a single keyset page, whatever the client asks for */
+        private int maxSize = 500;
+
+    }
+
+    @Data
+    public static class Export {
+
+        /** Number of streamed rows after which the persistence context is cleared */
+        private int clearInterval = 1000;
+
+    }
+
+    @Data
+    public static class Cache {
+
+        /** Maximum number of ids kept in the single item cache */
+        private long maximumSize = 10_000;
+
+        /** Time to live of a cached content */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** Time to live of a cached lookup for an id which does not exist */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Bulk {
+
+        /** Number of contents written per JDBC batch before the persistence context is flushed and cleared */
+        private int batchSize = 50;
+
+        /** Maximum number of contents accepted by one bulk request */
+        private int maxItems = 50_000;
+
+    }
+
+    @Data
+    public static class Async {
+
+        /** Maximum number of asynchronous content calls running at the same time */
+        private int concurrencyLimit = 32;
+
+        /** Number of calls allowed to wait for a free slot, further calls are rejected */
+        private int queueCapacity = 256;
+
+        /** Run calls on virtual threads when the JDK provides them, on a bounded thread pool otherwise */
+        private boolean virtualThreads = true;
+
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        /** Number of accepted contents waiting to be written, further contents are rejected */
+        private int queueCapacity = 10_000;
+
+        /** Maximum number of contents written in one transaction, must not exceed content.bulk.max-items */
+        private int batchSize = 500;
+
+        /** Maximum time an accepted content waits for its batch to fill up before it is written */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /** Time a request waits for room in a full queue before it is rejected */
+        private Duration offerTimeout = Duration.ofMillis(50);
+
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /** Serve unfiltered and yearOfRelease filtered lists from serialized and gzipped snapshots until the next write */
+        private boolean enabled = false;
+
+    }
+
+    @Data
+    public static class WarmUp {
+
+        /** Open the pool's minimum idle connections and validate each of them before the application takes traffic */
+        private boolean enabled = true;
+
+        /** Query run on every warmed up connection, by default the driver's own Connection.isValid check is used instead */
+        private String validationQuery;
+
+    }
+
+    @Data
+    public static class Client {
+
+        /** Request header identifying the client behind a trusted proxy */
+        private String header = "X-Client-Id";
+
+        /** Remote addresses of the proxies whose client header is believed, requests from anywhere else are identified by their own address */
+        private List<String> trustedProxies = new ArrayList<>();
+
+    }
+
+    @Data
+    public static class RateLimit {
+
+        /** Give every client a token bucket per API endpoint */
+        private boolean enabled = true;
+
+        /** Requests per second a client may send to one endpoint */
+        private double requestsPerSecond = 100;
+
+        /** Requests a client may send to one endpoint in a burst above the sustained rate */
+        private int burst = 200;
+
+        /** Requests per second a client may send for unbounded lists, such as GET /api/contents without paging */
+        private double listRequestsPerSecond = 5;
+
+        /** Unbounded list requests a client may send in a burst above the sustained rate */
+        private int listBurst = 50;
+
+        /** Maximum number of client and endpoint pairs tracked, the least recently seen are dropped first */
+        private long maximumClients = 100_000;
+
+    }
+
+    @Data
+    public static class ConcurrencyLimit {
+
+        /** Shed API requests once the adaptive number of requests in flight is reached */
+        private boolean enabled = true;
+
+        /** Requests in flight allowed at startup, before any latency has been seen */
+        private int initialLimit = 50;
+
+        /** The limit never drops below this, however slow requests get */
+        private int minLimit = 8;
+
+        /** The limit never grows above this, however fast requests are */
+        private int maxLimit = 500;
+
+        /** Requests slower than this shrink the limit, faster ones let it grow */
+        private Duration targetLatency = Duration.ofMillis(250);
+
+    }
+
+    @Data
+    public static class Changes {
+
+        /** Committed changes given their feed position in one go, each read of the feed first positions the changes committed since the last one */
+        private int sequenceBatchSize = 1000;
+
+    }
+
+    @Data
+    public static class BatchGet {
+
+        /** Maximum number of ids one batch get may ask for */
+        private int maxIds = 500;
+
+        /** Ids per IN query for the ones not found in the cache */
+        private int chunkSize = 100;
+
+    }
+
+    @Data
+    public static class Replicas {
+
+        public enum Balancing {
+            ROUND_ROBIN, LEAST_CONNECTIONS
+        }
+
+        /** Send read-only transactions to the replicas, everything else to the primary */
+        private boolean enabled = false;
+
+        /** JDBC urls of the replicas, opened with the primary's credentials and pool settings */
+        private List<String> urls = new ArrayList<>();
+
+        /** How the replica for a read is picked */
+        private Balancing balancing = Balancing.ROUND_ROBIN;
+
+        /** A client reads from the primary for this long after its own writes, should cover the replication lag */
+        private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+        /** Maximum number of clients whose last write is remembered */
+        private long maximumClients = 100_000;
+
+        /** A replica that failed to hand out a connection is skipped for this long */
+        private Duration failureBackoff = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Shards {
+
+        /** Partition contents by id across content.shards.urls instead of keeping them in the primary database */
+        private boolean enabled = false;
+
+        /** JDBC urls of the shards in shard order, which must never change once contents have been written */
+        private List<String> urls = new ArrayList<>();
+
+        /** Query returning the next value of a shard's content sequence */
+        private String sequenceQuery = "select next value for content_seq";
+
+        /** Query returning the next value of a shard's change log sequence */
+        private String changeSequenceQuery = "select next value for content_change_seq";
+
+        /** Threads running the per-shard queries of all requests, each holds one shard connection while it runs */
+        private int fanOutThreads = 16;
+
+        /** Per-shard queries allowed to wait for a fan-out thread, further queries are rejected */
+        private int fanOutQueueCapacity = 256;
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.amit.springtest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens the pool's minimum idle connections before the application takes traffic, instead of leaving the first
+ * requests after a deploy to wait for connections being created in the background, and validates each of them with
+ * content.warm-up.validation-query or, without one, Connection.isValid. A failing warm-up is logged, it does not stop the application.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DataSourceWarmUp implements ApplicationRunner {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource dataSource;
+
+    private final ContentProperties contentProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ContentProperties.WarmUp properties = contentProperties.getWarmUp();
+        if (!properties.isEnabled())
+            return;
+
+        long start = System.nanoTime();
+        List<Connection> connections = new ArrayList<>();
+        try {
+            int size = getWarmUpSize();
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                validate(connection, properties.getValidationQuery());
+            }
+            log.info("Warmed up {} connections in {} ms", connections.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            log.warn("Connection pool warm-up stopped after {} connections", connections.size(), e);
+        } finally {
+            for (Connection connection : connections)
+                close(connection);
+        }
+    }
+
+    /**
+     * Holding every connection until all are open forces the pool to create them instead of handing out the same one again.
+     */
+    private int getWarmUpSize() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class))
+            return Math.max(1, dataSource.unwrap(HikariDataSource.class).getMinimumIdle());
+        return 1;
+    }
+
+    private void validate(Connection connection, String validationQuery) throws SQLException {
+        if (!StringUtils.hasText(validationQuery)) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+                throw new SQLException("Connection is not valid");
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(validationQuery);
+        }
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to return a warmed up connection", e);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.amit.springtest.config;
+
+import com.amit.springtest.routing.ReadYourWritesTracker;
+import com.amit.springtest.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source with one that sends read-only transactions to content.replicas.urls.
+ * The primary pool is configured exactly as without replicas, every replica pool is a copy of it with its own url.
+ * <p>
+ * The pools are built inside the data source bean rather than exposed as beans of their own: Spring Boot runs the
+ * schema and data scripts for every DataSource bean against the primary DataSource, which for a pool would be the
+ * routing data source still being created around it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "content.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig primaryPoolConfig(DataSourceProperties dataSourceProperties) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(dataSourceProperties.determineUrl());
+        config.setUsername(dataSourceProperties.determineUsername());
+        config.setPassword(dataSourceProperties.determinePassword());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        return config;
+    }
+
+    /**
+     * A replica that is down at startup does not stop the application, its pool keeps trying in the background.
+     */
+    @Bean
+    public DataSource dataSource(HikariConfig primaryPoolConfig, ContentProperties contentProperties, MeterRegistry meterRegistry) {
+        ContentProperties.Replicas properties = contentProperties.getReplicas();
+        primaryPoolConfig.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        HikariDataSource primary = new HikariDataSource(primaryPoolConfig);
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            HikariConfig config = new HikariConfig();
+            primaryPoolConfig.copyStateTo(config);
+            config.setJdbcUrl(properties.getUrls().get(i));
+            config.setPoolName(primary.getPoolName() + "-replica-" + i);
+            config.setReadOnly(true);
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(properties.getReadYourWritesWindow(), properties.getMaximumClients(), System::nanoTime);
+        return new RoutingDataSourceProxy(primary, new ReplicaRoutingDataSource(primary, replicas, properties.getBalancing(), tracker,
+                properties.getFailureBackoff().toNanos(), meterRegistry, System::nanoTime));
+    }
+
+    /**
+     * Hibernate's second level and query caches are only invalidated by writes, rows read from a lagging replica just
+     * after a write would stay in them for everybody. The content cache takes over, its fills are routed as shared reads.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaSafeCaching() {
+        return hibernateProperties -> {
+            hibernateProperties.put("hibernate.cache.use_second_level_cache", "false");
+            hibernateProperties.put("hibernate.cache.use_query_cache", "false");
+        };
+    }
+
+    /**
+     * Closes the replica pools and the primary pool with the application context.
+     */
+    static class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final HikariDataSource primary;
+
+        private final ReplicaRoutingDataSource routingDataSource;
+
+        RoutingDataSourceProxy(HikariDataSource primary, ReplicaRoutingDataSource routingDataSource) {
+            super(routingDataSource);
+            this.primary = primary;
+            this.routingDataSource = routingDataSource;
+        }
+
+        @Override
+        public void close() {
+            routingDataSource.close();
+            primary.close();
+        }
+
+    }
+
+}
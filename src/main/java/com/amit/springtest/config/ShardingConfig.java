@@ -0,0 +1,57 @@
+package com.amit.springtest.config;
+
+import com.amit.springtest.shard.ContentShards;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Without content.shards.enabled there is no ContentShards bean and ContentService keeps using ContentRepository.
+ */
+@Configuration
+@ConditionalOnProperty(name = "content.shards.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    /**
+     * Every shard pool is a copy of the primary pool with its own url. The fan-out runs on content.shards.fan-out-threads
+     * threads with room for content.shards.fan-out-queue-capacity waiting queries, a query beyond that is rejected with a
+     * RejectedExecutionException like the asynchronous endpoints.
+     */
+    @Bean
+    public ContentShards contentShards(ContentProperties contentProperties, DataSource dataSource, MeterRegistry meterRegistry) throws SQLException {
+        ContentProperties.Shards properties = contentProperties.getShards();
+        HikariDataSource primary = dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            HikariConfig config = new HikariConfig();
+            if (primary != null)
+                primary.copyStateTo(config);
+            config.setJdbcUrl(properties.getUrls().get(i));
+            config.setPoolName((primary != null ? primary.getPoolName() : "content-pool") + "-shard-" + i);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(new HikariDataSource(config));
+        }
+        ThreadPoolExecutor fanOutExecutor = new ThreadPoolExecutor(properties.getFanOutThreads(), properties.getFanOutThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getFanOutQueueCapacity()), new CustomizableThreadFactory("content-shard-"),
+                (task, executor) -> {
+                    throw new RejectedExecutionException("Shard fan-out is saturated");
+                });
+        fanOutExecutor.allowCoreThreadTimeOut(true);
+        return new ContentShards(shards, properties.getSequenceQuery(), properties.getChangeSequenceQuery(), fanOutExecutor);
+    }
+
+}
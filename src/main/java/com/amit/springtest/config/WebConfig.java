@@ -0,0 +1,67 @@
+package com.amit.springtest.config;
+
+import com.amit.springtest.limit.AdaptiveConcurrencyLimiter;
+import com.amit.springtest.limit.ClientIdentity;
+import com.amit.springtest.limit.LoadSheddingInterceptor;
+import com.amit.springtest.limit.RateLimiter;
+import com.amit.springtest.routing.RoutingContextInterceptor;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ContentProperties contentProperties;
+
+    /**
+     * CBOR for clients sending or accepting application/cbor, built from the same builder as the JSON ObjectMapper so that
+     * both encodings share the spring.jackson settings. JSON stays the default for any other Accept header.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * The limiters are created here rather than as components so that they are part of @WebMvcTest slices too,
+     * and publish to the global registry for the same reason.
+     */
+    @Bean
+    public LoadSheddingInterceptor loadSheddingInterceptor() {
+        ContentProperties.RateLimit rateLimit = contentProperties.getRateLimit();
+        ContentProperties.ConcurrencyLimit concurrencyLimit = contentProperties.getConcurrencyLimit();
+        RateLimiter rateLimiter = null;
+        RateLimiter listRateLimiter = null;
+        if (rateLimit.isEnabled()) {
+            rateLimiter = new RateLimiter("default", rateLimit.getRequestsPerSecond(), rateLimit.getBurst(), rateLimit.getMaximumClients(), Metrics.globalRegistry, System::nanoTime);
+            listRateLimiter = new RateLimiter("list", rateLimit.getListRequestsPerSecond(), rateLimit.getListBurst(), rateLimit.getMaximumClients(), Metrics.globalRegistry, System::nanoTime);
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+        if (concurrencyLimit.isEnabled()) {
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(concurrencyLimit.getInitialLimit(), concurrencyLimit.getMinLimit(), concurrencyLimit.getMaxLimit(),
+                    concurrencyLimit.getTargetLatency().toNanos(), Metrics.globalRegistry, System::nanoTime);
+        }
+        return new LoadSheddingInterceptor(rateLimiter, listRateLimiter, concurrencyLimiter, clientIdentity(), System::nanoTime);
+    }
+
+    @Bean
+    public ClientIdentity clientIdentity() {
+        return new ClientIdentity(contentProperties.getClient().getHeader(), contentProperties.getClient().getTrustedProxies());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(loadSheddingInterceptor()).addPathPatterns("/api/**");
+        if (contentProperties.getReplicas().isEnabled())
+            registry.addInterceptor(new RoutingContextInterceptor(clientIdentity())).addPathPatterns("/api/**");
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.amit.springtest.controller;
+
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.config.AsyncConfig;
+import com.amit.springtest.limit.UnboundedList;
+import com.amit.springtest.service.ContentService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous variant of {@link ContentController}: the servlet thread is released as soon as the call is handed to the
+ * bounded content executor, and a saturated executor is answered with 503 instead of tying up more request threads.
+ */
+@RestController
+@RequestMapping("/api/async/contents")
+public class ContentAsyncController {
+
+    private final ContentService contentService;
+
+    private final Executor contentExecutor;
+
+    public ContentAsyncController(ContentService contentService, @Qualifier(AsyncConfig.CONTENT_EXECUTOR) Executor contentExecutor) {
+        this.contentService = contentService;
+        this.contentExecutor = contentExecutor;
+    }
+
+    @GetMapping
+    @UnboundedList(boundedBy = {"after", "limit"})
+    public CompletableFuture<ResponseEntity<List<ContentVo>>> getContents(@RequestParam(name = "yearOfRelease", required = false) Long yearOfRelease,
+                                                                          @RequestParam(name = "after", required = false) Long after,
+                                                                          @RequestParam(name = "limit", required = false) Integer limit){
+        if(yearOfRelease != null){
+            return CompletableFuture.supplyAsync(() -> ResponseEntity.ok(contentService.getLatestContents(yearOfRelease)), contentExecutor);
+        } else {
+            return CompletableFuture.supplyAsync(() -> ContentController.getPageResponse(contentService.getContentPage(after, limit)), contentExecutor);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ContentVo> getContent(@PathVariable("id") Long id){
+        return CompletableFuture.supplyAsync(() -> contentService.getContent(id), contentExecutor);
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<ContentVo> addContent(@RequestBody @Valid ContentVo content){
+        return CompletableFuture.supplyAsync(() -> contentService.addContent(content), contentExecutor);
+    }
+
+    @PutMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public CompletableFuture<Void> updateContent(@PathVariable Long id, @RequestBody @Valid ContentVo content){
+        return CompletableFuture.runAsync(() -> contentService.updateContent(id, content), contentExecutor);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public CompletableFuture<Void> deleteContent(@PathVariable Long id){
+        return CompletableFuture.runAsync(() -> contentService.deleteContent(id), contentExecutor);
+    }
+
+}
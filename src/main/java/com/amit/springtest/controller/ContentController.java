@@ -1,13 +1,35 @@
 package com.amit.springtest.controller;
 
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentBatchVo;
+import com.amit.springtest.bean.ContentChangePageVo;
+import com.amit.springtest.bean.ContentPageVo;
 import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.cache.ContentListSnapshots;
+import com.amit.springtest.config.ContentProperties;
+import com.amit.springtest.limit.UnboundedList;
 import com.amit.springtest.entity.Content;
 import com.amit.springtest.service.ContentService;
+import com.amit.springtest.service.ContentWriteBehindQueue;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -15,40 +37,190 @@ import java.util.List;
 @RequestMapping("/api/contents")
 public class ContentController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String PREFER_HEADER = "Prefer";
+
+    public static final String RESPOND_ASYNC = "respond-async";
+
     private final ContentService contentService;
 
+    private final ContentWriteBehindQueue contentWriteBehindQueue;
+
+    private final ObjectMapper objectMapper;
+
+    private final ContentProperties contentProperties;
+
     @GetMapping
-    public List<ContentVo> getContents(@RequestParam(name = "yearOfRelease", required = false) Long yearOfRelease){
+    @UnboundedList(boundedBy = {"yearFrom", "yearTo", "after", "limit"})
+    public ResponseEntity<?> getContents(@RequestParam(name = "yearOfRelease", required = false) Long yearOfRelease,
+                                         @RequestParam(name = "yearFrom", required = false) Long yearFrom,
+                                         @RequestParam(name = "yearTo", required = false) Long yearTo,
+                                         @RequestParam(name = "after", required = false) Long after,
+                                         @RequestParam(name = "limit", required = false) Integer limit,
+                                         HttpServletRequest request, WebRequest webRequest){
 
-        if(yearOfRelease != null){
-            return contentService.getLatestContents(yearOfRelease);
+        if(contentProperties.getSnapshot().isEnabled() && yearFrom == null && yearTo == null && after == null && limit == null && prefersJson(request)){
+            return getContentsSnapshot(yearOfRelease, request, webRequest);
+        } else if(yearOfRelease != null){
+            return ResponseEntity.ok(contentService.getLatestContents(yearOfRelease));
+        } else if(yearFrom != null || yearTo != null){
+            return ResponseEntity.ok(contentService.getContentsByYearRange(yearFrom, yearTo, limit));
         } else {
-            List<ContentVo> contents = contentService.getContents();
-            return contents;
+            return getPageResponse(contentService.getContentPage(after, limit));
         }
     }
 
+    /**
+     * The contents of the page with the cursor of the next page in the {@value #NEXT_CURSOR_HEADER} header. Without a cursor
+     * or a limit the first page of the default size is returned, the whole table is never listed in one response.
+     */
+    static ResponseEntity<List<ContentVo>> getPageResponse(ContentPageVo page){
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.getNextCursor() != null)
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        return response.body(page.getContents());
+    }
+
+    /**
+     * Writes the snapshot bytes as they are, gzipped when the client accepts it. The snapshot carries its own ETag,
+     * so a matching If-None-Match is answered with 304 before any bytes are written.
+     */
+    private ResponseEntity<byte[]> getContentsSnapshot(Long yearOfRelease, HttpServletRequest request, WebRequest webRequest){
+        ContentListSnapshots.Snapshot snapshot = contentService.getContentsSnapshot(yearOfRelease);
+        if(webRequest.checkNotModified(snapshot.getETag()))
+            return null;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if(acceptEncoding != null && acceptEncoding.contains("gzip"))
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        return response.body(snapshot.getJson());
+    }
+
+    private boolean prefersJson(HttpServletRequest request){
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if(accept == null)
+            return true;
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        return mediaTypes.isEmpty() || mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping("/search")
+    public List<ContentVo> searchContents(@RequestParam("q") String query,
+                                          @RequestParam(name = "offset", required = false) Integer offset,
+                                          @RequestParam(name = "limit", required = false) Integer limit){
+        return contentService.searchContents(query, offset, limit);
+    }
+
+    /**
+     * Many contents by id in one round trip, for pages that would otherwise call GET /{id} once per content.
+     */
+    @PostMapping("/batch-get")
+    public ContentBatchVo getContentsById(@RequestBody List<Long> ids){
+        return contentService.getContentsById(ids);
+    }
+
+    /**
+     * Incremental synchronisation: the changes after the since token, deletes included as tombstones, and the token to send next.
+     */
+    @GetMapping("/changes")
+    public ContentChangePageVo getChanges(@RequestParam(name = "since", required = false) Long since,
+                                          @RequestParam(name = "limit", required = false) Integer limit){
+        return contentService.getChanges(since, limit);
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    @UnboundedList
+    public void exportContents(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(ContentVo.class);
+        contentService.exportContents(vo -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(vo));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        outputStream.flush();
+    }
+
+    /**
+     * The version of the content is its strong ETag. A matching If-None-Match is answered with 304 and no body is written.
+     */
     @GetMapping("/{id}")
-    public ContentVo getContent(@PathVariable("id") Long id){
-        return contentService.getContent(id);
+    public ContentVo getContent(@PathVariable("id") Long id, WebRequest request){
+        ContentVo content = contentService.getContent(id);
+        if(content != null && content.getVersion() != null && request.checkNotModified(String.valueOf(content.getVersion())))
+            return null;
+        return content;
     }
 
+    /**
+     * Writes the content immediately and returns it with 201, or with a "Prefer: respond-async" header queues it for a
+     * batched write and returns 202 without an id. A queued content is always inserted, any id sent with it is dropped.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public ContentVo addContent(@RequestBody @Valid ContentVo content){
-        return contentService.addContent(content);
+    public ResponseEntity<ContentVo> addContent(@RequestBody @Valid ContentVo content,
+                                                @RequestHeader(name = PREFER_HEADER, required = false) String prefer){
+        if(prefer != null && prefer.contains(RESPOND_ASYNC)){
+            content.setId(null);
+            contentWriteBehindQueue.enqueue(content);
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(contentService.addContent(content));
+    }
+
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public List<BulkResultVo> addContents(@RequestBody List<ContentVo> contents){
+        return contentService.addContents(contents);
+    }
+
+    @PostMapping(value = "/bulk", consumes = NDJSON_VALUE)
+    public List<BulkResultVo> addNdjsonContents(InputStream body) throws IOException {
+        try (MappingIterator<ContentVo> contents = objectMapper.readerFor(ContentVo.class).readValues(body)) {
+            return contentService.addContents(contents.readAll());
+        }
     }
 
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateContent(@PathVariable Long id, @RequestBody @Valid ContentVo content){
-        contentService.updateContent(id, content);
+    public void updateContent(@PathVariable Long id, @RequestBody @Valid ContentVo content,
+                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long version = getVersion(ifMatch);
+        if(version == null)
+            contentService.updateContent(id, content);
+        else
+            contentService.updateContent(id, content, version);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteContent(@PathVariable  Long id){
-        contentService.deleteContent(id);
+    public void deleteContent(@PathVariable  Long id, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long version = getVersion(ifMatch);
+        if(version == null)
+            contentService.deleteContent(id);
+        else
+            contentService.deleteContent(id, version);
+    }
+
+    /**
+     * Version expected by an If-Match header, null when the write is unconditional. Weak ETags never match for If-Match.
+     */
+    private Long getVersion(String ifMatch) {
+        if(ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+        try {
+            return Long.valueOf(ifMatch.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new OptimisticLockingFailureException("If-Match does not match the current version");
+        }
     }
 
 }
@@ -1,19 +1,27 @@
 package com.amit.springtest.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Content.CACHE_REGION)
 @Data
-@Table(name = "content")
+@Table(name = "content", indexes = @Index(name = "idx_content_year_of_release", columnList = "year_of_release, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Content {
 
+    public static final String CACHE_REGION = "content";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "content_seq")
+    @SequenceGenerator(name = "content_seq", sequenceName = "content_seq", initialValue = 1000, allocationSize = 50)
     private Long id;
 
     @Column
@@ -25,4 +33,24 @@ public class Content {
     @Column(name = "year_of_release")
     private Long yearOfRelease;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    /**
+     * Time of the last write through JPA, the bulk updates in ContentRepository set it themselves.
+     */
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public Content(Long id, String title, String description, Long yearOfRelease) {
+        this(id, title, description, yearOfRelease, null, null);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.amit.springtest.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * One row of the append-only change log, written in the same transaction as the content it describes.
+ * Upserts carry the content as written, deletes are tombstones with only the content id.
+ */
+@Entity
+@Data
+@Table(name = "content_change", indexes = @Index(name = "idx_content_change_seq", columnList = "seq", unique = true))
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentChange {
+
+    public enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+
+    /**
+     * Pooled like content ids, it only identifies the row: writers get their ids in any order and commit in any order.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "content_change_seq")
+    @SequenceGenerator(name = "content_change_seq", sequenceName = "content_change_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * Position in the change feed, null until ContentChangeSequencer has numbered the row after it committed.
+     */
+    @Column
+    private Long seq;
+
+    @Column(name = "content_id", nullable = false)
+    private Long contentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private Operation operation;
+
+    @Column
+    private String title;
+
+    @Column
+    private String description;
+
+    @Column(name = "year_of_release")
+    private Long yearOfRelease;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+}
@@ -0,0 +1,26 @@
+package com.amit.springtest.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * The single row holding the last position handed out in the change feed. Sequencing runs under its write lock.
+ */
+@Entity
+@Data
+@Table(name = "content_change_position")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentChangePosition {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+
+}
@@ -0,0 +1,86 @@
+package com.amit.springtest.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the number of requests in flight with a limit that adapts to latency, additive increase and multiplicative
+ * decrease: every request finishing within the target latency while the limit is at least half used raises the limit
+ * by one, a slower request cuts it by a tenth, at most once per target latency so that one slow burst counts once.
+ * Requests beyond the limit are shed straight away instead of queueing behind the slow ones.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final String METRIC_PREFIX = "content.concurrency";
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final LongSupplier clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter rejectedCounter;
+
+    private volatile int limit;
+
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, MeterRegistry registry, LongSupplier clock) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.clock = clock;
+        this.lastDecrease = clock.getAsLong() - targetLatencyNanos;
+        Gauge.builder(METRIC_PREFIX + ".limit", this, AdaptiveConcurrencyLimiter::getLimit).register(registry);
+        Gauge.builder(METRIC_PREFIX + ".in-flight", this, AdaptiveConcurrencyLimiter::getInFlight).register(registry);
+        this.rejectedCounter = registry.counter(METRIC_PREFIX + ".rejected");
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejectedCounter.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Gives the slot back and adapts the limit to how long the request took.
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (latencyNanos > targetLatencyNanos) {
+                long now = clock.getAsLong();
+                if (now - lastDecrease >= targetLatencyNanos) {
+                    limit = Math.max(minLimit, (int) (limit * 0.9));
+                    lastDecrease = now;
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.amit.springtest.limit;
+
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The client a request is charged to: the authenticated principal when there is one, otherwise the remote address.
+ * The client header is only believed on requests coming straight from one of the trusted proxies, which set it for the
+ * caller behind them; anyone else could send a new value with every request.
+ */
+public class ClientIdentity {
+
+    private final String clientHeader;
+
+    private final Set<String> trustedProxies;
+
+    public ClientIdentity(String clientHeader, Collection<String> trustedProxies) {
+        this.clientHeader = clientHeader;
+        this.trustedProxies = new HashSet<>(trustedProxies);
+    }
+
+    public String resolve(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null)
+            return principal.getName();
+        String remoteAddress = request.getRemoteAddr();
+        if (trustedProxies.contains(remoteAddress)) {
+            String client = request.getHeader(clientHeader);
+            if (StringUtils.hasText(client))
+                return client;
+        }
+        return remoteAddress;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.amit.springtest.limit;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Charges every API request to its client's token bucket for the endpoint, unbounded lists to the stricter list
+ * budget, and then to the adaptive concurrency limit. Rejections are thrown as exceptions so that AppExceptionHandler
+ * answers them, 429 for the rate limits and 503 for the concurrency limit. Either limiter may be null when disabled.
+ * <p>
+ * An asynchronous request keeps its concurrency slot until its result has been written: Spring MVC calls preHandle
+ * again on the async dispatch, which is recognised by the request attribute holding the start time.
+ */
+public class LoadSheddingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = LoadSheddingInterceptor.class.getName() + ".start";
+
+    private final RateLimiter rateLimiter;
+
+    private final RateLimiter listRateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final ClientIdentity clientIdentity;
+
+    private final LongSupplier clock;
+
+    public LoadSheddingInterceptor(RateLimiter rateLimiter, RateLimiter listRateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                   ClientIdentity clientIdentity, LongSupplier clock) {
+        this.rateLimiter = rateLimiter;
+        this.listRateLimiter = listRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientIdentity = clientIdentity;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || request.getAttribute(START_ATTRIBUTE) != null)
+            return true;
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        RateLimiter limiter = isUnboundedList(request, handlerMethod) ? listRateLimiter : rateLimiter;
+        if (limiter != null) {
+            String endpoint = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            long wait = limiter.tryAcquire(clientIdentity.resolve(request), endpoint);
+            if (wait > 0)
+                throw new RateLimitExceededException("Rate limit of the " + limiter.getName() + " budget exceeded", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999)));
+        }
+        if (concurrencyLimiter != null) {
+            if (!concurrencyLimiter.tryAcquire())
+                throw new RejectedExecutionException("Concurrency limit of " + concurrencyLimiter.getLimit() + " requests reached");
+            request.setAttribute(START_ATTRIBUTE, clock.getAsLong());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            concurrencyLimiter.release(clock.getAsLong() - (Long) start);
+        }
+    }
+
+    private boolean isUnboundedList(HttpServletRequest request, HandlerMethod handlerMethod) {
+        UnboundedList unboundedList = handlerMethod.getMethodAnnotation(UnboundedList.class);
+        if (unboundedList == null)
+            return false;
+        for (String parameter : unboundedList.boundedBy())
+            if (request.getParameter(parameter) != null)
+                return false;
+        return true;
+    }
+
+}
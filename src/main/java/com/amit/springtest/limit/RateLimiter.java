@@ -0,0 +1,58 @@
+package com.amit.springtest.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per key, typically client and endpoint. Buckets of keys which have not been seen for a while are
+ * dropped, a returning client simply starts again with a full bucket.
+ */
+public class RateLimiter {
+
+    static final String METRIC = "content.rate-limit.requests";
+
+    private final String name;
+
+    private final double requestsPerSecond;
+
+    private final int burst;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final LongSupplier clock;
+
+    private final MeterRegistry registry;
+
+    public RateLimiter(String name, double requestsPerSecond, int burst, long maximumKeys, MeterRegistry registry, LongSupplier clock) {
+        this.name = name;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.registry = registry;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(Duration.ofSeconds(Math.max(60, (long) Math.ceil(burst / requestsPerSecond))))
+                .build();
+    }
+
+    /**
+     * Returns 0 when the request may go ahead, otherwise the nanoseconds after which the key gets its next token.
+     * Outcomes are counted per limiter and endpoint, never per client.
+     */
+    public long tryAcquire(String client, String endpoint) {
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.get(client + '|' + endpoint, key -> new TokenBucket(burst, requestsPerSecond, now));
+        long wait = bucket.tryConsume(now);
+        registry.counter(METRIC, "limiter", name, "endpoint", endpoint, "outcome", wait == 0 ? "allowed" : "rejected").increment();
+        return wait;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.amit.springtest.limit;
+
+/**
+ * Holds up to capacity tokens and refills continuously at a fixed rate. Time is passed in by the caller in nanoseconds.
+ */
+class TokenBucket {
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Takes one token if there is one and returns 0, otherwise returns the nanoseconds until the next token is available.
+     */
+    synchronized long tryConsume(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.amit.springtest.limit;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a handler which can return every content, so it is charged to the stricter list budget, unless the request
+ * carries one of the bounding parameters, which turn it into a paged call.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface UnboundedList {
+
+    String[] boundedBy() default {};
+
+}
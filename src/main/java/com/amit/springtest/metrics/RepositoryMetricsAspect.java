@@ -0,0 +1,50 @@
+package com.amit.springtest.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Times every ContentRepository call and records how many rows each collection returning call gave back.
+ * Spring Boot 2.2 has no repository metrics of its own, so this is done with an aspect around the repository proxy.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("target(com.amit.springtest.repository.ContentRepository) && !execution(* java.lang.Object.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "SUCCESS";
+        try {
+            Object result = joinPoint.proceed();
+            recordRows(method, result);
+            return result;
+        } catch (Throwable e) {
+            outcome = "ERROR";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("content.repository").tag("method", method).tag("outcome", outcome).register(meterRegistry));
+        }
+    }
+
+    private void recordRows(String method, Object result) {
+        Object rows = result instanceof Optional ? ((Optional<?>) result).orElse(null) : result;
+        if (rows instanceof Collection) {
+            DistributionSummary.builder("content.repository.rows").tag("method", method).register(meterRegistry).record(((Collection<?>) rows).size());
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.amit.springtest.repository;
+
+import com.amit.springtest.entity.ContentChangePosition;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface ContentChangePositionRepository extends CrudRepository<ContentChangePosition, Integer> {
+
+    /**
+     * Reads the position with select ... for update, so concurrent sequencers, on any instance, wait for each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from ContentChangePosition p where p.id = :id")
+    Optional<ContentChangePosition> findForUpdate(@Param("id") Integer id);
+
+}
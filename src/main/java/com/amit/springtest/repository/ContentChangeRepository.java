@@ -0,0 +1,23 @@
+package com.amit.springtest.repository;
+
+import com.amit.springtest.entity.ContentChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ContentChangeRepository extends CrudRepository<ContentChange, Long> {
+
+    /**
+     * Changes after the given sequence number in write order, read from the primary key so the cost follows the page size.
+     */
+    List<ContentChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable pageable);
+
+    /**
+     * Committed changes that have no feed position yet, oldest row first.
+     */
+    List<ContentChange> findBySeqIsNullOrderByIdAsc(Pageable pageable);
+
+}
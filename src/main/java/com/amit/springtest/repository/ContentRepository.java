@@ -1,19 +1,95 @@
 package com.amit.springtest.repository;
 
+import com.amit.springtest.bean.ContentVo;
 import com.amit.springtest.entity.Content;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ContentRepository extends CrudRepository<Content, Long> {
 
-    @Query(value = "select * from content where year_of_release > :year", nativeQuery = true)
-    Optional<List<Content>> findAllByYearOfReleaseAfter(@Param("year") Long year);
+    /**
+     * Query cache region of the year queries. Hibernate drops its results whenever the content table is written through
+     * JPA, including the JPQL bulk updates and deletes below, but not when it is written with plain SQL.
+     */
+    String YEAR_QUERY_REGION = "content-year-queries";
+
+    /**
+     * Read-only projections straight into ContentVo: no managed entity and no dirty checking snapshot per row.
+     * Single contents are read through {@link #findById} instead, which the second level cache's content region serves.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.amit.springtest.bean.ContentVo(c.id, c.title, c.description, c.yearOfRelease, c.version) from Content c")
+    List<ContentVo> findAllProjectedBy();
+
+    @Transactional(readOnly = true)
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = YEAR_QUERY_REGION)})
+    @Query("select new com.amit.springtest.bean.ContentVo(c.id, c.title, c.description, c.yearOfRelease, c.version) from Content c where c.yearOfRelease > :year")
+    List<ContentVo> findAllProjectedByYearOfReleaseAfter(@Param("year") Long year);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.amit.springtest.bean.ContentVo(c.id, c.title, c.description, c.yearOfRelease, c.version) from Content c where c.id in :ids")
+    List<ContentVo> findAllProjectedByIdIn(@Param("ids") Collection<Long> ids);
+
+    List<Content> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Inclusive year range served from the (year_of_release, id) index, which also gives the sort order for free.
+     */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = YEAR_QUERY_REGION)})
+    @Query("select c from Content c where c.yearOfRelease >= :yearFrom and c.yearOfRelease <= :yearTo order by c.yearOfRelease, c.id")
+    List<Content> findAllByYearOfReleaseBetween(@Param("yearFrom") Long yearFrom, @Param("yearTo") Long yearTo, Pageable pageable);
+
+    /**
+     * Forward-only cursor over the whole table, must be consumed and closed inside a transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select c from Content c order by c.id")
+    Stream<Content> streamAllByOrderByIdAsc();
+
+    /**
+     * Updates the content in one statement without loading it first. Returns the number of updated rows.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Content c set c.title = :title, c.description = :description, c.yearOfRelease = :yearOfRelease, c.version = c.version + 1, c.updatedAt = current_timestamp where c.id = :id")
+    int updateContentById(@Param("id") Long id, @Param("title") String title, @Param("description") String description, @Param("yearOfRelease") Long yearOfRelease);
+
+    /**
+     * Same as {@link #updateContentById} but only when the row still has the expected version.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Content c set c.title = :title, c.description = :description, c.yearOfRelease = :yearOfRelease, c.version = c.version + 1, c.updatedAt = current_timestamp where c.id = :id and c.version = :version")
+    int updateContentByIdAndVersion(@Param("id") Long id, @Param("version") Long version, @Param("title") String title, @Param("description") String description, @Param("yearOfRelease") Long yearOfRelease);
+
+    /**
+     * Deletes the content in one statement without loading it first. Returns the number of deleted rows.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Content c where c.id = :id")
+    int deleteContentById(@Param("id") Long id);
 
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from Content c where c.id = :id and c.version = :version")
+    int deleteContentByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
 
 }
@@ -0,0 +1,51 @@
+package com.amit.springtest.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers when each client last wrote, and when anybody last wrote, for as long as the read-your-writes window lasts.
+ */
+public class ReadYourWritesTracker {
+
+    private final long windowNanos;
+
+    private final LongSupplier clock;
+
+    private final Cache<String, Long> lastWrites;
+
+    private final AtomicLong lastWrite;
+
+    public ReadYourWritesTracker(Duration window, long maximumClients, LongSupplier clock) {
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        this.lastWrites = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterWrite(window)
+                .build();
+        this.lastWrite = new AtomicLong(clock.getAsLong() - windowNanos);
+    }
+
+    public void recordWrite(String client) {
+        long now = clock.getAsLong();
+        lastWrite.accumulateAndGet(now, Math::max);
+        if (client != null)
+            lastWrites.put(client, now);
+    }
+
+    public boolean wroteRecently(String client) {
+        if (client == null)
+            return false;
+        Long written = lastWrites.getIfPresent(client);
+        return written != null && clock.getAsLong() - written < windowNanos;
+    }
+
+    public boolean anyWriteRecently() {
+        return clock.getAsLong() - lastWrite.get() < windowNanos;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.amit.springtest.routing;
+
+import com.amit.springtest.config.ContentProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything else.
+ * <p>
+ * Reads stay on the primary while their client is inside its read-your-writes window, and shared reads while anybody is.
+ * A replica that fails to hand out a connection is skipped for the failure backoff and the next one is tried, the primary
+ * when none is left. The routing decision needs the transaction to be known, so this data source has to sit behind a
+ * LazyConnectionDataSourceProxy, which only fetches the connection when the first statement runs.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    static final String METRIC = "content.datasource.connections";
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final ContentProperties.Replicas.Balancing balancing;
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private final long failureBackoffNanos;
+
+    private final MeterRegistry registry;
+
+    private final LongSupplier clock;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLongArray downUntil;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ContentProperties.Replicas.Balancing balancing,
+                                    ReadYourWritesTracker readYourWritesTracker, long failureBackoffNanos, MeterRegistry registry, LongSupplier clock) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.balancing = balancing;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.failureBackoffNanos = failureBackoffNanos;
+        this.registry = registry;
+        this.clock = clock;
+        this.downUntil = new AtomicLongArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isActualTransactionActive())
+            return fromPrimary("no-transaction");
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWrite();
+            return fromPrimary("write");
+        }
+        String client = RoutingContext.getClient();
+        if (readYourWritesTracker.wroteRecently(client) || (RoutingContext.isSharedRead() && readYourWritesTracker.anyWriteRecently()))
+            return fromPrimary("read-your-writes");
+
+        for (int index : getCandidates()) {
+            try {
+                Connection connection = replicas.get(index).getConnection();
+                count("replica", "read");
+                return connection;
+            } catch (SQLException e) {
+                downUntil.set(index, clock.getAsLong() + failureBackoffNanos);
+                log.warn("Replica {} failed to hand out a connection, skipping it for {} ms", index, failureBackoffNanos / 1_000_000, e);
+            }
+        }
+        return fromPrimary("fallback");
+    }
+
+    /**
+     * Every pool brings its own credentials.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLException("Connections are opened with the credentials of the primary and replica pools");
+    }
+
+    /**
+     * The window starts again when the transaction ends, a long write would otherwise outlast it before its rows are visible.
+     */
+    private void recordWrite() {
+        String client = RoutingContext.getClient();
+        readYourWritesTracker.recordWrite(client);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    readYourWritesTracker.recordWrite(client);
+                }
+            });
+        }
+    }
+
+    private Connection fromPrimary(String reason) throws SQLException {
+        count("primary", reason);
+        return primary.getConnection();
+    }
+
+    /**
+     * Healthy replicas in the order they should be tried. A replica whose backoff has passed counts as healthy again.
+     */
+    List<Integer> getCandidates() {
+        long now = clock.getAsLong();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(1, replicas.size()));
+        List<Integer> candidates = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (downUntil.get(index) - now <= 0)
+                candidates.add(index);
+        }
+        if (balancing == ContentProperties.Replicas.Balancing.LEAST_CONNECTIONS)
+            candidates.sort(Comparator.comparingInt(this::getActiveConnections));
+        return candidates;
+    }
+
+    private int getActiveConnections(int index) {
+        DataSource replica = replicas.get(index);
+        if (replica instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) replica).getHikariPoolMXBean();
+            if (pool != null)
+                return pool.getActiveConnections();
+        }
+        return 0;
+    }
+
+    private void count(String target, String reason) {
+        registry.counter(METRIC, "target", target, "reason", reason).increment();
+    }
+
+    /**
+     * Everything but the routing itself is the primary's: pool settings, metadata and the like.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return (T) this;
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * Closes the replica pools, the primary belongs to whoever created it.
+     */
+    @Override
+    public void close() {
+        for (DataSource replica : replicas) {
+            if (!(replica instanceof Closeable))
+                continue;
+            try {
+                ((Closeable) replica).close();
+            } catch (IOException e) {
+                log.warn("Failed to close a replica pool", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.amit.springtest.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * What the current thread tells ReplicaRoutingDataSource about its reads: the client it works for, and whether the rows
+ * it reads end up in a cache shared by all clients.
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> SHARED_READ = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static void setClient(String client) {
+        CLIENT.set(client);
+    }
+
+    public static String getClient() {
+        return CLIENT.get();
+    }
+
+    public static void clear() {
+        CLIENT.remove();
+    }
+
+    /**
+     * Runs a read whose result is shared with other clients, such as a cache fill. Shortly after any write such reads go
+     * to the primary, otherwise a lagging replica would be served to everybody until the entry expires.
+     */
+    public static <T> T sharedRead(Supplier<T> read) {
+        Boolean previous = SHARED_READ.get();
+        SHARED_READ.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null)
+                SHARED_READ.remove();
+        }
+    }
+
+    static boolean isSharedRead() {
+        return SHARED_READ.get() != null;
+    }
+
+}
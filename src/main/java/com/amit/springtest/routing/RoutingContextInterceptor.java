@@ -0,0 +1,38 @@
+package com.amit.springtest.routing;
+
+import com.amit.springtest.limit.ClientIdentity;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tells RoutingContext which client the request thread works for, identified by the same ClientIdentity as the rate limits.
+ * Work handed to other threads, such as the asynchronous endpoints and the write-behind queue, runs without a client and
+ * so without a read-your-writes window of its own.
+ */
+public class RoutingContextInterceptor implements AsyncHandlerInterceptor {
+
+    private final ClientIdentity clientIdentity;
+
+    public RoutingContextInterceptor(ClientIdentity clientIdentity) {
+        this.clientIdentity = clientIdentity;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RoutingContext.setClient(clientIdentity.resolve(request));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RoutingContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RoutingContext.clear();
+    }
+
+}
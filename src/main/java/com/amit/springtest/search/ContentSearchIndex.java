@@ -0,0 +1,323 @@
+package com.amit.springtest.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over content titles and descriptions.
+ * Every indexed content gets a dense int document number, and each term maps to a posting list of document numbers
+ * and term frequencies held in primitive int arrays. Updating a content retires its old document number and appends
+ * a new one, so posting lists stay sorted; retired numbers are compacted away once they outnumber the live ones.
+ */
+@Component
+public class ContentSearchIndex {
+
+    static final int TITLE_WEIGHT = 2;
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Integer> documents = new HashMap<>();
+
+    private final BitSet retired = new BitSet();
+
+    private long[] contentIds = new long[MIN_COMPACTION_SIZE];
+
+    private int documentCount;
+
+    /**
+     * Indexes the content, replacing whatever was indexed for the same id before. Title terms weigh double.
+     */
+    public void put(Long id, String title, String description) {
+        if (id == null)
+            return;
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokenize(title).forEach(term -> frequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+        tokenize(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            int document = documentCount++;
+            if (document == contentIds.length)
+                contentIds = Arrays.copyOf(contentIds, contentIds.length * 2);
+            contentIds[document] = id;
+            documents.put(id, document);
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new Postings()).add(document, frequency));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null)
+            return;
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            retired.clear();
+            contentIds = new long[MIN_COMPACTION_SIZE];
+            documentCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the contents matching any of the query terms, best first, skipping offset hits and returning at most limit.
+     * A hit scores the sum of term frequency times inverse document frequency over the matched terms; ties go to the lower id.
+     * The matched posting lists are merged in document order, so each hit is scored once without a score map, and only the
+     * best offset + limit hits are kept in a bounded heap. Rare terms and shallow pages therefore stay cheap on a large index.
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty())
+            return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            List<Postings> matched = new ArrayList<>(terms.size());
+            int postingCount = 0;
+            for (String term : terms) {
+                Postings termPostings = postings.get(term);
+                if (termPostings == null)
+                    continue;
+                matched.add(termPostings);
+                postingCount += termPostings.size;
+            }
+
+            float[] idfs = new float[matched.size()];
+            for (int t = 0; t < idfs.length; t++)
+                idfs[t] = (float) Math.log(1 + (double) documents.size() / matched.get(t).size);
+
+            TopHits top = new TopHits((int) Math.min((long) offset + limit, postingCount), contentIds);
+            int[] cursors = new int[matched.size()];
+            while (true) {
+                int document = Integer.MAX_VALUE;
+                for (int t = 0; t < cursors.length; t++) {
+                    Postings termPostings = matched.get(t);
+                    if (cursors[t] < termPostings.size && termPostings.documents[cursors[t]] < document)
+                        document = termPostings.documents[cursors[t]];
+                }
+                if (document == Integer.MAX_VALUE)
+                    break;
+                float score = 0;
+                for (int t = 0; t < cursors.length; t++) {
+                    Postings termPostings = matched.get(t);
+                    if (cursors[t] < termPostings.size && termPostings.documents[cursors[t]] == document)
+                        score += termPostings.frequencies[cursors[t]++] * idfs[t];
+                }
+                if (!retired.get(document))
+                    top.offer(document, score);
+            }
+
+            int[] ranked = top.drain();
+            List<Long> ids = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++)
+                ids.add(contentIds[ranked[i]]);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null)
+            return Collections.emptyList();
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+            if (!term.isEmpty())
+                terms.add(term);
+        return terms;
+    }
+
+    private void retire(Long id) {
+        Integer document = documents.remove(id);
+        if (document != null)
+            retired.set(document);
+    }
+
+    private void compactIfNeeded() {
+        if (documentCount < MIN_COMPACTION_SIZE || retired.cardinality() <= documents.size())
+            return;
+
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (retired.get(document))
+                continue;
+            renumbered[document] = live;
+            contentIds[live] = contentIds[document];
+            documents.put(contentIds[live], live);
+            live++;
+        }
+        Iterator<Postings> iterator = postings.values().iterator();
+        while (iterator.hasNext()) {
+            Postings termPostings = iterator.next();
+            termPostings.compact(retired, renumbered);
+            if (termPostings.size == 0)
+                iterator.remove();
+        }
+        retired.clear();
+        documentCount = live;
+    }
+
+    /**
+     * Bounded heap of the best hits offered so far with the worst of them at the root, so a hit which does not make
+     * the cut is rejected with one comparison and any other costs log(capacity).
+     */
+    private static class TopHits {
+
+        private final long[] contentIds;
+
+        private final int[] documents;
+
+        private final float[] scores;
+
+        private int size;
+
+        TopHits(int capacity, long[] contentIds) {
+            this.contentIds = contentIds;
+            this.documents = new int[Math.max(0, capacity)];
+            this.scores = new float[documents.length];
+        }
+
+        void offer(int document, float score) {
+            if (size < documents.length) {
+                documents[size] = document;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && ranksBefore(document, score, documents[0], scores[0])) {
+                documents[0] = document;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Empties the heap into the document numbers of its hits, best first.
+         */
+        int[] drain() {
+            int[] ranked = new int[size];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = documents[0];
+                size--;
+                documents[0] = documents[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return ranked;
+        }
+
+        private boolean ranksBefore(int document, float score, int otherDocument, float otherScore) {
+            if (score != otherScore)
+                return score > otherScore;
+            return contentIds[document] < contentIds[otherDocument];
+        }
+
+        private boolean ranksBefore(int i, int j) {
+            return ranksBefore(documents[i], scores[i], documents[j], scores[j]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!ranksBefore(parent, i))
+                    return;
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                if (left < size && ranksBefore(worst, left))
+                    worst = left;
+                if (left + 1 < size && ranksBefore(worst, left + 1))
+                    worst = left + 1;
+                if (worst == i)
+                    return;
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int document = documents[i];
+            documents[i] = documents[j];
+            documents[j] = document;
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+    }
+
+    /**
+     * Document numbers in ascending order, with the term frequency of each at the same index.
+     */
+    private static class Postings {
+
+        private int[] documents = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size + (size >> 1));
+                frequencies = Arrays.copyOf(frequencies, documents.length);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void compact(BitSet retired, int[] renumbered) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (retired.get(documents[i]))
+                    continue;
+                documents[live] = renumbered[documents[i]];
+                frequencies[live] = frequencies[i];
+                live++;
+            }
+            size = live;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.amit.springtest.service;
+
+import com.amit.springtest.config.ContentProperties;
+import com.amit.springtest.entity.ContentChange;
+import com.amit.springtest.entity.ContentChangePosition;
+import com.amit.springtest.repository.ContentChangePositionRepository;
+import com.amit.springtest.repository.ContentChangeRepository;
+import com.amit.springtest.shard.ContentShards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Gives committed changes their position in the change feed.
+ * <p>
+ * A writer's change row only becomes visible when its transaction commits, however long that takes, and positions are
+ * handed out to visible rows only, under the lock of the position row and in the same transaction that moves it on.
+ * Every position a reader can see was therefore committed together with or before all smaller positions, so a since
+ * token handed to a client can never have a change slot in below it later.
+ * <p>
+ * While sharded the changes are logged on the shards. The position row stays in the primary database and is only moved on
+ * once every shard has committed the positions it was given, so readers must not go past the position returned here.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentChangeSequencer {
+
+    private final ContentChangeRepository contentChangeRepository;
+
+    private final ContentChangePositionRepository contentChangePositionRepository;
+
+    private final ContentProperties contentProperties;
+
+    private final Optional<ContentShards> contentShards;
+
+    /**
+     * Numbers up to content.changes.sequence-batch-size unsequenced changes after the last position, as many on every shard
+     * while sharded, and returns the new last position.
+     * <p>
+     * The position row is created by the first run when the schema does not have it, as after Hibernate generated it. Of two
+     * first runs racing each other only one can commit its insert, the other fails on the duplicate key and rolls back its
+     * numbering, and the next read of the feed finds the row.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long sequence() {
+        ContentChangePosition position = contentChangePositionRepository.findForUpdate(ContentChangePosition.ID)
+                .orElseGet(() -> contentChangePositionRepository.save(ContentChangePosition.builder().id(ContentChangePosition.ID).lastSeq(0L).build()));
+        int batchSize = contentProperties.getChanges().getSequenceBatchSize();
+        long last = position.getLastSeq();
+        if (contentShards.isPresent()) {
+            last = contentShards.get().sequenceChanges(last, batchSize);
+        } else {
+            for (ContentChange change : contentChangeRepository.findBySeqIsNullOrderByIdAsc(PageRequest.of(0, batchSize)))
+                change.setSeq(++last);
+        }
+        position.setLastSeq(last);
+        return last;
+    }
+
+}
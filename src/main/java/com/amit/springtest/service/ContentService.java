@@ -1,75 +1,506 @@
 package com.amit.springtest.service;
 
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentBatchVo;
+import com.amit.springtest.bean.ContentChangePageVo;
+import com.amit.springtest.bean.ContentChangeVo;
+import com.amit.springtest.bean.ContentPageVo;
 import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.bean.ErrorVo;
+import com.amit.springtest.cache.ContentCache;
+import com.amit.springtest.cache.ContentListSnapshots;
+import com.amit.springtest.cache.SingleFlight;
+import com.amit.springtest.config.ContentProperties;
 import com.amit.springtest.entity.Content;
+import com.amit.springtest.entity.ContentChange;
+import com.amit.springtest.entity.ContentChangePosition;
+import com.amit.springtest.repository.ContentChangeRepository;
 import com.amit.springtest.repository.ContentRepository;
+import com.amit.springtest.search.ContentSearchIndex;
+import com.amit.springtest.shard.ContentShards;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ContentService {
 
+    static final String SERVICE_TIMER = "content.service";
+
     private final ContentRepository contentRepository;
 
-    private ContentVo getVo(Content entity) {
-        return ContentVo.builder().id(entity.getId()).description(entity.getDescription()).title(entity.getTitle()).yearOfRelease(entity.getYearOfRelease()).build();
+    private final ContentProperties contentProperties;
+
+    private final EntityManager entityManager;
+
+    private final ContentCache contentCache;
+
+    private final Validator validator;
+
+    private final ContentSearchIndex contentSearchIndex;
+
+    private final ContentListSnapshots contentListSnapshots;
+
+    private final ContentChangeRepository contentChangeRepository;
+
+    /**
+     * Present with content.shards.enabled, contents are then read and written through the shards instead of ContentRepository.
+     */
+    private final Optional<ContentShards> contentShards;
+
+    private final ContentChangeSequencer contentChangeSequencer;
+
+    private final SingleFlight<Long, List<ContentVo>> latestContentsFlight = new SingleFlight<>("latest-contents", Metrics.globalRegistry);
+
+    private final SingleFlight<Integer, Long> changeSequencerFlight = new SingleFlight<>("change-sequencer", Metrics.globalRegistry);
+
+    static ContentVo getVo(Content entity) {
+        return ContentVo.builder().id(entity.getId()).description(entity.getDescription()).title(entity.getTitle()).yearOfRelease(entity.getYearOfRelease()).version(entity.getVersion()).build();
     }
 
-    private Content getEntity(ContentVo vo){
+    static Content getEntity(ContentVo vo){
         return Content.builder().description(vo.getDescription()).id(vo.getId()).title(vo.getTitle()).yearOfRelease(vo.getYearOfRelease()).build();
     }
 
+    /**
+     * A create always gets a generated id. An id sent by the client would make a versioned entity look detached to persist.
+     */
+    static Content getNewEntity(ContentVo vo){
+        Content entity = getEntity(vo);
+        entity.setId(null);
+        return entity;
+    }
+
+    static ContentChangeVo getChangeVo(ContentChange change) {
+        ContentVo content = change.getOperation() == ContentChange.Operation.DELETED ? null
+                : ContentVo.builder().id(change.getContentId()).title(change.getTitle()).description(change.getDescription()).yearOfRelease(change.getYearOfRelease()).build();
+        return ContentChangeVo.builder().seq(change.getSeq()).id(change.getContentId()).operation(change.getOperation()).content(content).changedAt(change.getChangedAt()).build();
+    }
+
+    /**
+     * Every content in one list, only read to build the list snapshot. Requests are served keyset pages by {@link #getContentPage(Long, Integer)}.
+     */
+    @Timed(SERVICE_TIMER)
     public List<ContentVo> getContents() {
-        Iterable<Content> contents = contentRepository.findAll();
-        List<ContentVo> vos = new ArrayList<>();
-        contents.forEach(c -> vos.add(getVo(c)));
-        return vos;
+        return contentShards.map(ContentShards::findAll).orElseGet(contentRepository::findAllProjectedBy);
     }
 
-    public List<ContentVo> getLatestContents(Long releaseYear){
-        Optional<List<Content>> contents = contentRepository.findAllByYearOfReleaseAfter(releaseYear);
-        if(contents.isPresent()){
-            return contents.get().stream().map(content -> getVo(content)).collect(Collectors.toList());
+    /**
+     * Hands every content to the consumer while it is read from the database cursor, so the table is never held in memory.
+     * Returns the number of exported contents.
+     */
+    @Transactional(readOnly = true)
+    @Timed(SERVICE_TIMER)
+    public long exportContents(Consumer<ContentVo> consumer) {
+        int clearInterval = contentProperties.getExport().getClearInterval();
+        long count = 0;
+        if(contentShards.isPresent()) {
+            Iterator<ContentVo> contents = contentShards.get().iterateAll(clearInterval);
+            for (; contents.hasNext(); count++)
+                consumer.accept(contents.next());
+            return count;
         }
-        return null;
+        try (Stream<Content> contents = contentRepository.streamAllByOrderByIdAsc()) {
+            Iterator<Content> iterator = contents.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(getVo(iterator.next()));
+                if (++count % clearInterval == 0)
+                    entityManager.clear();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fills the search index from the database once the application is up. Later writes through this service keep it current,
+     * rows written to the table by other means are only picked up by the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildSearchIndex() {
+        contentSearchIndex.clear();
+        exportContents(vo -> contentSearchIndex.put(vo.getId(), vo.getTitle(), vo.getDescription()));
     }
 
+    /**
+     * Contents whose title or description contain any of the query words, best matches first, paginated by offset and limit.
+     */
+    @Timed(SERVICE_TIMER)
+    public List<ContentVo> searchContents(String query, Integer offset, Integer limit) {
+        if(offset != null && offset < 0)
+            throw new IllegalArgumentException("Offset must not be negative");
+        List<Long> ids = contentSearchIndex.search(query, offset == null ? 0 : offset, getPageSize(limit));
+        if(ids.isEmpty())
+            return Collections.emptyList();
+        Map<Long, ContentVo> contents = findAllByIdIn(ids).stream().collect(Collectors.toMap(ContentVo::getId, Function.identity()));
+        return ids.stream().map(contents::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Keyset page of contents ordered by id, starting right after the given cursor.
+     * One extra row is fetched to find out whether a next page exists without issuing a count query.
+     */
+    @Timed(SERVICE_TIMER)
+    public ContentPageVo getContentPage(Long after, Integer limit) {
+        int pageSize = getPageSize(limit);
+        long from = after == null ? 0L : after;
+        List<ContentVo> contents = contentShards.map(shards -> shards.findByIdGreaterThan(from, pageSize + 1))
+                .orElseGet(() -> contentRepository.findByIdGreaterThanOrderByIdAsc(from, PageRequest.of(0, pageSize + 1)).stream().map(content -> getVo(content)).collect(Collectors.toList()));
+        List<ContentVo> vos = contents.stream().limit(pageSize).collect(Collectors.toList());
+        Long nextCursor = contents.size() > pageSize ? vos.get(pageSize - 1).getId() : null;
+        return new ContentPageVo(vos, nextCursor);
+    }
+
+    /**
+     * Contents released between the two years, both inclusive and both optional, sorted by year then id and bounded by the page size.
+     */
+    @Timed(SERVICE_TIMER)
+    public List<ContentVo> getContentsByYearRange(Long yearFrom, Long yearTo, Integer limit) {
+        if(yearFrom != null && yearTo != null && yearFrom > yearTo)
+            throw new IllegalArgumentException("yearFrom must not be after yearTo");
+        int pageSize = getPageSize(limit);
+        long from = yearFrom == null ? Long.MIN_VALUE : yearFrom;
+        long to = yearTo == null ? Long.MAX_VALUE : yearTo;
+        return contentShards.map(shards -> shards.findAllByYearOfReleaseBetween(from, to, pageSize))
+                .orElseGet(() -> contentRepository.findAllByYearOfReleaseBetween(from, to, PageRequest.of(0, pageSize)).stream().map(content -> getVo(content)).collect(Collectors.toList()));
+    }
+
+    private int getPageSize(Integer limit) {
+        if(limit == null)
+            return contentProperties.getPage().getDefaultSize();
+        if(limit < 1)
+            throw new IllegalArgumentException("Limit must be positive");
+        return Math.min(limit, contentProperties.getPage().getMaxSize());
+    }
+
+    /**
+     * Concurrent calls for the same year share one query.
+     */
+    @Timed(SERVICE_TIMER)
+    public List<ContentVo> getLatestContents(Long releaseYear){
+        return latestContentsFlight.execute(releaseYear, () -> contentShards.map(shards -> shards.findAllByYearOfReleaseAfter(releaseYear))
+                .orElseGet(() -> contentRepository.findAllProjectedByYearOfReleaseAfter(releaseYear)));
+    }
+
+    /**
+     * The list returned by {@link #getLatestContents(Long)}, or by {@link #getContents()} when no year is given,
+     * as JSON and gzip bytes which stay valid until the next write through this service.
+     */
+    @Timed(SERVICE_TIMER)
+    public ContentListSnapshots.Snapshot getContentsSnapshot(Long releaseYear){
+        if(releaseYear == null)
+            return contentListSnapshots.get("all", this::getContents);
+        return contentListSnapshots.get("yearOfRelease>" + releaseYear, () -> getLatestContents(releaseYear));
+    }
+
+    /**
+     * Changes positioned after the since token, in feed order and bounded by the page size, together with the token for the next call.
+     * Changes committed since the last read are positioned first, concurrent readers share one run of the sequencer.
+     * While sharded the change logs of all shards are read up to the position the sequencer returned and merged by position.
+     */
+    @Timed(SERVICE_TIMER)
+    public ContentChangePageVo getChanges(Long since, Integer limit) {
+        if(since != null && since < 0)
+            throw new IllegalArgumentException("Since must not be negative");
+        long from = since == null ? 0L : since;
+        int pageSize = getPageSize(limit);
+        long last = changeSequencerFlight.execute(ContentChangePosition.ID, contentChangeSequencer::sequence);
+        List<ContentChangeVo> changes = contentShards.map(shards -> shards.findChanges(from, last, pageSize))
+                .orElseGet(() -> contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(from, PageRequest.of(0, pageSize)).stream()
+                        .map(ContentService::getChangeVo).collect(Collectors.toList()));
+        Long nextSince = changes.isEmpty() ? from : changes.get(changes.size() - 1).getSeq();
+        return new ContentChangePageVo(changes, nextSince);
+    }
+
+    /**
+     * Concurrent misses for the same id share one query, the cache loads each key atomically.
+     */
+    @Timed(SERVICE_TIMER)
     public ContentVo getContent(Long id){
-        Optional<Content> content = contentRepository.findById(id);
-        if(content.isPresent())
-            return getVo(content.get());
-        return null;
+        return contentCache.get(id, key -> contentShards.isPresent() ? contentShards.get().findById(key) : contentRepository.findById(key).map(ContentService::getVo).orElse(null));
     }
 
+    /**
+     * The contents of the ids in the order they were asked for, duplicates dropped, and the ids that have no content.
+     * Cached ids are served from the cache, the rest are read with IN queries of at most content.batch-get.chunk-size ids.
+     */
+    @Timed(SERVICE_TIMER)
+    public ContentBatchVo getContentsById(List<Long> ids) {
+        int maxIds = contentProperties.getBatchGet().getMaxIds();
+        if(ids.size() > maxIds)
+            throw new IllegalArgumentException("At most " + maxIds + " contents can be fetched at once");
+        if(ids.contains(null))
+            throw new IllegalArgumentException("Ids must not be null");
+
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, ContentVo> found = contentCache.getAll(uniqueIds, this::loadContents);
+        List<ContentVo> contents = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            ContentVo content = found.get(id);
+            if(content != null)
+                contents.add(content);
+            else
+                missing.add(id);
+        }
+        return new ContentBatchVo(contents, missing);
+    }
+
+    private Map<Long, ContentVo> loadContents(List<Long> ids) {
+        int chunkSize = contentProperties.getBatchGet().getChunkSize();
+        Map<Long, ContentVo> contents = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += chunkSize)
+            findAllByIdIn(ids.subList(from, Math.min(from + chunkSize, ids.size()))).forEach(vo -> contents.put(vo.getId(), vo));
+        return contents;
+    }
+
+    private List<ContentVo> findAllByIdIn(Collection<Long> ids) {
+        return contentShards.map(shards -> shards.findAllByIdIn(ids)).orElseGet(() -> contentRepository.findAllProjectedByIdIn(ids));
+    }
+
+    @Transactional
+    @Timed(SERVICE_TIMER)
     public ContentVo addContent(ContentVo vo){
-        Content entity = getEntity(vo);
-        entity = contentRepository.save(entity);
+        ContentVo written;
+        if(contentShards.isPresent()) {
+            written = contentShards.get().insert(vo);
+        } else {
+            written = getVo(contentRepository.save(getNewEntity(vo)));
+            logChange(ContentChange.Operation.CREATED, written);
+        }
+        refreshAfterCommit(Collections.singletonList(written));
+        return written;
+    }
+
+    /**
+     * Validates every content and writes the valid ones in JDBC batches of content.bulk.batch-size.
+     * A content with the id of an existing row updates that row, any other content is inserted with a generated id.
+     * Existing rows are looked up with one IN query per batch, and the persistence context is flushed and cleared after each batch.
+     * Sharded contents are written by {@link ContentShards#writeAll(List)}, every shard its part in one transaction.
+     */
+    @Transactional
+    @Timed(SERVICE_TIMER)
+    public List<BulkResultVo> addContents(List<ContentVo> vos) {
+        int maxItems = contentProperties.getBulk().getMaxItems();
+        if(vos.size() > maxItems)
+            throw new IllegalArgumentException("At most " + maxItems + " contents can be added at once");
+        if(contentShards.isPresent())
+            return addContents(contentShards.get(), vos);
+
+        int batchSize = contentProperties.getBulk().getBatchSize();
+        List<BulkResultVo> results = new ArrayList<>(vos.size());
+        List<ContentVo> written = new ArrayList<>(vos.size());
+        for (int from = 0; from < vos.size(); from += batchSize) {
+            List<ContentVo> batch = vos.subList(from, Math.min(from + batchSize, vos.size()));
+            Map<Long, Content> existing = new HashMap<>();
+            List<Long> ids = batch.stream().map(ContentVo::getId).filter(Objects::nonNull).collect(Collectors.toList());
+            if(!ids.isEmpty())
+                contentRepository.findAllById(ids).forEach(c -> existing.put(c.getId(), c));
+
+            for (int i = 0; i < batch.size(); i++) {
+                ContentVo vo = batch.get(i);
+                BulkResultVo result = BulkResultVo.builder().index(from + i).build();
+                if(isValid(vo, result)) {
+                    ContentVo writtenVo = writeEntity(vo, existing, result);
+                    result.setId(writtenVo.getId());
+                    logChange(result.getStatus() == BulkResultVo.Status.CREATED ? ContentChange.Operation.CREATED : ContentChange.Operation.UPDATED, writtenVo);
+                    written.add(writtenVo);
+                }
+                results.add(result);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        refreshAfterCommit(written);
+        return results;
+    }
+
+    /**
+     * A shard that fails rolls back its own part only, the exception then loses the results of the parts already committed
+     * on other shards. Retrying the whole upload is safe for contents with an id, which update their row again.
+     */
+    private List<BulkResultVo> addContents(ContentShards shards, List<ContentVo> vos) {
+        List<BulkResultVo> results = new ArrayList<>(vos.size());
+        List<ContentVo> valid = new ArrayList<>(vos.size());
+        List<BulkResultVo> validResults = new ArrayList<>(vos.size());
+        for (int i = 0; i < vos.size(); i++) {
+            BulkResultVo result = BulkResultVo.builder().index(i).build();
+            if(isValid(vos.get(i), result)) {
+                valid.add(vos.get(i));
+                validResults.add(result);
+            }
+            results.add(result);
+        }
+
+        List<ContentShards.Written> writes = shards.writeAll(valid);
+        List<ContentVo> written = new ArrayList<>(writes.size());
+        for (int i = 0; i < writes.size(); i++) {
+            ContentShards.Written write = writes.get(i);
+            BulkResultVo result = validResults.get(i);
+            result.setId(write.getContent().getId());
+            result.setStatus(write.isCreated() ? BulkResultVo.Status.CREATED : BulkResultVo.Status.UPDATED);
+            written.add(write.getContent());
+        }
+        refreshAfterCommit(written);
+        return results;
+    }
+
+    private boolean isValid(ContentVo vo, BulkResultVo result) {
+        Set<ConstraintViolation<ContentVo>> violations = validator.validate(vo);
+        if(violations.isEmpty())
+            return true;
+        result.setStatus(BulkResultVo.Status.INVALID);
+        result.setErrors(violations.stream().map(v -> new ErrorVo(v.getPropertyPath().toString(), v.getMessage(), ConstraintViolationException.class.getCanonicalName())).collect(Collectors.toList()));
+        return false;
+    }
+
+    private ContentVo writeEntity(ContentVo vo, Map<Long, Content> existing, BulkResultVo result) {
+        Content entity = vo.getId() == null ? null : existing.get(vo.getId());
+        if(entity != null) {
+            entity.setTitle(vo.getTitle());
+            entity.setDescription(vo.getDescription());
+            entity.setYearOfRelease(vo.getYearOfRelease());
+            result.setStatus(BulkResultVo.Status.UPDATED);
+        } else {
+            entity = getNewEntity(vo);
+            entityManager.persist(entity);
+            result.setStatus(BulkResultVo.Status.CREATED);
+        }
         return getVo(entity);
     }
 
-    public void updateContent(Long id, ContentVo vo){
-        Optional<Content> content = contentRepository.findById(id);
-        if(content.isPresent()){
-            Content entity = getEntity(vo);
-            contentRepository.save(entity);
+    /**
+     * Logs a change of the primary's contents in the JPA transaction of the write. Shards log their changes themselves,
+     * in the transaction of the shard they write to.
+     */
+    private void logChange(ContentChange.Operation operation, ContentVo vo) {
+        contentChangeRepository.save(ContentChange.builder().contentId(vo.getId()).operation(operation)
+                .title(vo.getTitle()).description(vo.getDescription()).yearOfRelease(vo.getYearOfRelease()).changedAt(Instant.now()).build());
+    }
+
+    private void logTombstone(Long id) {
+        contentChangeRepository.save(ContentChange.builder().contentId(id).operation(ContentChange.Operation.DELETED).changedAt(Instant.now()).build());
+    }
+
+    private void refreshAfterCommit(List<ContentVo> written) {
+        afterCommit(() -> refresh(written));
+    }
+
+    private void evictAfterCommit(Long id) {
+        afterCommit(() -> {
+            contentCache.invalidate(id);
+            contentListSnapshots.invalidateAll();
+            latestContentsFlight.forgetAll();
+            contentSearchIndex.remove(id);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
         } else {
-            throw new IllegalArgumentException("Content not present");
+            action.run();
+        }
+    }
+
+    private void refresh(List<ContentVo> written) {
+        for (ContentVo vo : written) {
+            contentCache.invalidate(vo.getId());
+            contentSearchIndex.put(vo.getId(), vo.getTitle(), vo.getDescription());
         }
+        if(!written.isEmpty()) {
+            contentListSnapshots.invalidateAll();
+            latestContentsFlight.forgetAll();
+        }
+    }
+
+    @Transactional
+    @Timed(SERVICE_TIMER)
+    public void updateContent(Long id, ContentVo vo){
+        int updated = contentShards.map(shards -> shards.update(id, vo, null))
+                .orElseGet(() -> contentRepository.updateContentById(id, vo.getTitle(), vo.getDescription(), vo.getYearOfRelease()));
+        if(updated == 0)
+            throw new IllegalArgumentException("Content not present");
+        updated(id, vo);
     }
 
+    /**
+     * Updates the content only if it still has the expected version, as sent by the client in If-Match.
+     */
+    @Transactional
+    @Timed(SERVICE_TIMER)
+    public void updateContent(Long id, ContentVo vo, Long expectedVersion){
+        int updated = contentShards.map(shards -> shards.update(id, vo, expectedVersion))
+                .orElseGet(() -> contentRepository.updateContentByIdAndVersion(id, expectedVersion, vo.getTitle(), vo.getDescription(), vo.getYearOfRelease()));
+        if(updated == 0)
+            throw getWriteFailure(id);
+        updated(id, vo);
+    }
+
+    private void updated(Long id, ContentVo vo) {
+        ContentVo written = ContentVo.builder().id(id).title(vo.getTitle()).description(vo.getDescription()).yearOfRelease(vo.getYearOfRelease()).build();
+        if(!contentShards.isPresent())
+            logChange(ContentChange.Operation.UPDATED, written);
+        refreshAfterCommit(Collections.singletonList(written));
+    }
+
+    @Transactional
+    @Timed(SERVICE_TIMER)
     public void deleteContent(Long id) {
-        Optional<Content> content = contentRepository.findById(id);
-        if(content.isPresent()){
-            contentRepository.delete(content.get());
-        } else {
+        int deleted = contentShards.map(shards -> shards.delete(id, null)).orElseGet(() -> contentRepository.deleteContentById(id));
+        if(deleted == 0)
             throw new IllegalArgumentException("Content not present");
-        }
+        deleted(id);
+    }
+
+    @Transactional
+    @Timed(SERVICE_TIMER)
+    public void deleteContent(Long id, Long expectedVersion) {
+        int deleted = contentShards.map(shards -> shards.delete(id, expectedVersion)).orElseGet(() -> contentRepository.deleteContentByIdAndVersion(id, expectedVersion));
+        if(deleted == 0)
+            throw getWriteFailure(id);
+        deleted(id);
+    }
+
+    private void deleted(Long id) {
+        if(!contentShards.isPresent())
+            logTombstone(id);
+        evictAfterCommit(id);
+    }
+
+    /**
+     * A conditional write touched no row: either the content is gone or somebody else changed it first.
+     * Only this failure path pays for the extra existence query.
+     */
+    private RuntimeException getWriteFailure(Long id) {
+        if(contentShards.map(shards -> shards.existsById(id)).orElseGet(() -> contentRepository.existsById(id)))
+            return new OptimisticLockingFailureException("Content has been modified");
+        return new IllegalArgumentException("Content not present");
     }
 
 }
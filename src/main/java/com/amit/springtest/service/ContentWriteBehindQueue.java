@@ -0,0 +1,165 @@
+package com.amit.springtest.service;
+
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.config.ContentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory queue of accepted contents. A single flusher thread coalesces them into
+ * {@link ContentService#addContents(List)} calls of up to content.write-behind.batch-size contents, written as soon
+ * as a batch is full or content.write-behind.flush-interval after its first content arrived.
+ * Accepted contents which are still queued when the process dies are lost.
+ */
+@Slf4j
+@Component
+public class ContentWriteBehindQueue {
+
+    static final String METRIC_PREFIX = "content.write-behind";
+
+    private final ContentService contentService;
+
+    private final BlockingQueue<ContentVo> queue;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final long offerTimeoutNanos;
+
+    private final Timer flushTimer;
+
+    private final DistributionSummary batchSummary;
+
+    private final Counter rejectedCounter;
+
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    public ContentWriteBehindQueue(ContentService contentService, ContentProperties contentProperties, MeterRegistry registry) {
+        ContentProperties.WriteBehind properties = contentProperties.getWriteBehind();
+        this.contentService = contentService;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.offerTimeoutNanos = properties.getOfferTimeout().toNanos();
+        Gauge.builder(METRIC_PREFIX + ".queue", queue, BlockingQueue::size)
+                .description("Accepted contents waiting to be written")
+                .register(registry);
+        this.flushTimer = Timer.builder(METRIC_PREFIX + ".flush")
+                .description("Time taken to write one batch of accepted contents")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSummary = DistributionSummary.builder(METRIC_PREFIX + ".batch")
+                .description("Number of contents written per batch")
+                .register(registry);
+        this.rejectedCounter = registry.counter(METRIC_PREFIX + ".rejected");
+        this.failedCounter = registry.counter(METRIC_PREFIX + ".failed");
+    }
+
+    /**
+     * Queues the content, waiting at most content.write-behind.offer-timeout for room in a full queue.
+     *
+     * @throws RejectedExecutionException if the queue stays full, so that producers back off
+     */
+    public void enqueue(ContentVo content) {
+        boolean accepted;
+        try {
+            accepted = queue.offer(content, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("Write-behind queue is full");
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::run, "content-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops accepting batches once the queue is drained and waits for the flusher to write what is left.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null)
+            flusher.join();
+    }
+
+    private void run() {
+        List<ContentVo> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ContentVo first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0)
+                        break;
+                    ContentVo next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<ContentVo> batch) {
+        if (batch.isEmpty())
+            return;
+        batchSummary.record(batch.size());
+        try {
+            List<BulkResultVo> results = flushTimer.recordCallable(() -> contentService.addContents(new ArrayList<>(batch)));
+            long invalid = results.stream().filter(r -> r.getStatus() == BulkResultVo.Status.INVALID).count();
+            if (invalid > 0) {
+                failedCounter.increment(invalid);
+                log.warn("Dropped {} invalid contents out of a write-behind batch of {}", invalid, batch.size());
+            }
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to write a write-behind batch of {} contents", batch.size(), e);
+        }
+    }
+
+}
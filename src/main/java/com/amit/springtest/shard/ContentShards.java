@@ -0,0 +1,397 @@
+package com.amit.springtest.shard;
+
+import com.amit.springtest.bean.ContentChangeVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.entity.ContentChange;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The content table partitioned by id across several databases, each holding the usual content and content_change tables
+ * with their sequences.
+ * <p>
+ * The low {@link #SHARD_BITS} bits of a generated id are the shard it was written to and the rest comes from that shard's
+ * sequence, so ids are unique across shards and a point lookup needs no directory. Ids written before sharding are placed
+ * by the same bits modulo the number of shards. Queries over all contents run on every shard in parallel and their sorted
+ * results are merged.
+ * <p>
+ * Every write runs in a transaction of the shard it writes to, together with its row in that shard's change log. There is
+ * no transaction across shards, see {@link #writeAll(List)}. The changes of all shards share one feed, whose positions
+ * are handed out by {@link #sequenceChanges(long, int)}.
+ */
+@Slf4j
+public class ContentShards implements Closeable {
+
+    static final int SHARD_BITS = 10;
+
+    static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private static final String COLUMNS = "select id, title, description, year_of_release, version from content";
+
+    private static final RowMapper<ContentVo> CONTENT_MAPPER = (rs, rowNum) -> new ContentVo(rs.getLong("id"), rs.getString("title"),
+            rs.getString("description"), rs.getObject("year_of_release", Long.class), rs.getLong("version"));
+
+    private static final String CHANGE_COLUMNS = "select seq, content_id, operation, title, description, year_of_release, changed_at from content_change";
+
+    private static final RowMapper<ContentChangeVo> CHANGE_MAPPER = (rs, rowNum) -> {
+        ContentChange.Operation operation = ContentChange.Operation.valueOf(rs.getString("operation"));
+        ContentVo content = operation == ContentChange.Operation.DELETED ? null : ContentVo.builder().id(rs.getLong("content_id"))
+                .title(rs.getString("title")).description(rs.getString("description")).yearOfRelease(rs.getObject("year_of_release", Long.class)).build();
+        return ContentChangeVo.builder().seq(rs.getLong("seq")).id(rs.getLong("content_id")).operation(operation).content(content)
+                .changedAt(rs.getTimestamp("changed_at").toInstant()).build();
+    };
+
+    private static final Comparator<ContentChangeVo> BY_SEQ = Comparator.comparing(ContentChangeVo::getSeq);
+
+    private static final Comparator<ContentVo> BY_ID = Comparator.comparing(ContentVo::getId);
+
+    private static final Comparator<ContentVo> BY_YEAR_AND_ID = Comparator.comparing(ContentVo::getYearOfRelease, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(BY_ID);
+
+    private final List<DataSource> dataSources;
+
+    private final List<NamedParameterJdbcTemplate> shards = new ArrayList<>();
+
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+
+    private final String sequenceQuery;
+
+    private final String changeSequenceQuery;
+
+    private final ExecutorService fanOutExecutor;
+
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ContentShards(List<DataSource> dataSources, String sequenceQuery, String changeSequenceQuery, ExecutorService fanOutExecutor) {
+        if (dataSources.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        if (dataSources.size() > MAX_SHARDS)
+            throw new IllegalArgumentException("At most " + MAX_SHARDS + " shards are supported");
+        this.dataSources = dataSources;
+        this.sequenceQuery = sequenceQuery;
+        this.changeSequenceQuery = changeSequenceQuery;
+        this.fanOutExecutor = fanOutExecutor;
+        for (DataSource dataSource : dataSources) {
+            shards.add(new NamedParameterJdbcTemplate(dataSource));
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+    }
+
+    int shardOf(long id) {
+        return (int) ((id & (MAX_SHARDS - 1)) % shards.size());
+    }
+
+    private JdbcTemplate shard(long id) {
+        return shards.get(shardOf(id)).getJdbcTemplate();
+    }
+
+    public ContentVo findById(Long id) {
+        return findById(shard(id), id);
+    }
+
+    private static ContentVo findById(JdbcTemplate shard, Long id) {
+        List<ContentVo> contents = shard.query(COLUMNS + " where id = ?", CONTENT_MAPPER, id);
+        return contents.isEmpty() ? null : contents.get(0);
+    }
+
+    public boolean existsById(Long id) {
+        Integer count = shard(id).queryForObject("select count(*) from content where id = ?", Integer.class, id);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Each shard is asked only for its own ids, all shards at once.
+     */
+    public List<ContentVo> findAllByIdIn(Collection<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        for (Long id : ids)
+            idsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        List<CompletableFuture<List<ContentVo>>> queries = new ArrayList<>();
+        idsByShard.forEach((shard, shardIds) -> queries.add(CompletableFuture.supplyAsync(
+                () -> shards.get(shard).query(COLUMNS + " where id in (:ids)", new MapSqlParameterSource("ids", shardIds), CONTENT_MAPPER), fanOutExecutor)));
+        List<ContentVo> contents = new ArrayList<>(ids.size());
+        for (List<ContentVo> shardContents : join(queries))
+            contents.addAll(shardContents);
+        return contents;
+    }
+
+    public List<ContentVo> findAll() {
+        return KWayMerge.merge(fanOut(shard -> shard.query(COLUMNS + " order by id", CONTENT_MAPPER)), BY_ID, Integer.MAX_VALUE);
+    }
+
+    public List<ContentVo> findAllByYearOfReleaseAfter(Long year) {
+        return KWayMerge.merge(fanOut(shard -> shard.query(COLUMNS + " where year_of_release > ? order by id", CONTENT_MAPPER, year)), BY_ID, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Every shard returns its first limit rows of the range, the merge keeps the first limit of all of them.
+     */
+    public List<ContentVo> findAllByYearOfReleaseBetween(Long yearFrom, Long yearTo, int limit) {
+        return KWayMerge.merge(fanOut(shard -> shard.query(COLUMNS + " where year_of_release >= ? and year_of_release <= ? order by year_of_release, id limit ?",
+                CONTENT_MAPPER, yearFrom, yearTo, limit)), BY_YEAR_AND_ID, limit);
+    }
+
+    public List<ContentVo> findByIdGreaterThan(Long after, int limit) {
+        return KWayMerge.merge(fanOut(shard -> findPage(shard, after, limit)), BY_ID, limit);
+    }
+
+    /**
+     * All contents ordered by id, read page by page from every shard so no more than one page per shard is held at a time.
+     */
+    public Iterator<ContentVo> iterateAll(int pageSize) {
+        List<Iterator<ContentVo>> iterators = new ArrayList<>(shards.size());
+        for (NamedParameterJdbcTemplate shard : shards)
+            iterators.add(new PageIterator(shard.getJdbcTemplate(), pageSize));
+        return KWayMerge.merge(iterators, BY_ID);
+    }
+
+    /**
+     * Writes the content to the next shard in turn, under an id generated for that shard. Returns the written content.
+     */
+    public ContentVo insert(ContentVo vo) {
+        int shardIndex = nextShard();
+        return inTransaction(shardIndex, shard -> insert(shardIndex, shard, vo));
+    }
+
+    /**
+     * Writes the contents, every shard its part of them in one transaction: a content with the id of an existing row updates
+     * that row, any other content is inserted under a generated id. Contents without an id go to the next shard in turn,
+     * contents with an id to the shard the id belongs to. Returns what was written in the order of the contents, updated rows
+     * as read back after the update.
+     * <p>
+     * The shards are written one after the other and each commits on its own. When a shard fails its part is rolled back
+     * and the shards after it are not written, but the parts already committed on the shards before it stay written.
+     */
+    public List<Written> writeAll(List<ContentVo> vos) {
+        Map<Integer, List<Integer>> indexesByShard = new TreeMap<>();
+        for (int i = 0; i < vos.size(); i++) {
+            Long id = vos.get(i).getId();
+            indexesByShard.computeIfAbsent(id != null ? shardOf(id) : nextShard(), shard -> new ArrayList<>()).add(i);
+        }
+        Written[] written = new Written[vos.size()];
+        indexesByShard.forEach((shardIndex, indexes) -> inTransaction(shardIndex, shard -> {
+            for (int index : indexes)
+                written[index] = write(shardIndex, shard, vos.get(index));
+            return null;
+        }));
+        return Arrays.asList(written);
+    }
+
+    private Written write(int shardIndex, JdbcTemplate shard, ContentVo vo) {
+        if (vo.getId() != null && update(shard, vo.getId(), vo, null) > 0)
+            return new Written(findById(shard, vo.getId()), false);
+        return new Written(insert(shardIndex, shard, vo), true);
+    }
+
+    private ContentVo insert(int shardIndex, JdbcTemplate shard, ContentVo vo) {
+        Long sequence = shard.queryForObject(sequenceQuery, Long.class);
+        long id = (sequence << SHARD_BITS) | shardIndex;
+        shard.update("insert into content(id, title, description, year_of_release, version, updated_at) values (?, ?, ?, ?, 0, ?)",
+                id, vo.getTitle(), vo.getDescription(), vo.getYearOfRelease(), Timestamp.from(Instant.now()));
+        logChange(shard, ContentChange.Operation.CREATED, id, vo);
+        return new ContentVo(id, vo.getTitle(), vo.getDescription(), vo.getYearOfRelease(), 0L);
+    }
+
+    /**
+     * Updates the content, only if it still has the expected version unless that is null. Returns the number of updated rows.
+     */
+    public int update(Long id, ContentVo vo, Long expectedVersion) {
+        return inTransaction(shardOf(id), shard -> update(shard, id, vo, expectedVersion));
+    }
+
+    private int update(JdbcTemplate shard, Long id, ContentVo vo, Long expectedVersion) {
+        String sql = "update content set title = ?, description = ?, year_of_release = ?, version = version + 1, updated_at = ? where id = ?";
+        Timestamp now = Timestamp.from(Instant.now());
+        int updated = expectedVersion == null ? shard.update(sql, vo.getTitle(), vo.getDescription(), vo.getYearOfRelease(), now, id)
+                : shard.update(sql + " and version = ?", vo.getTitle(), vo.getDescription(), vo.getYearOfRelease(), now, id, expectedVersion);
+        if (updated > 0)
+            logChange(shard, ContentChange.Operation.UPDATED, id, vo);
+        return updated;
+    }
+
+    /**
+     * Deletes the content, only if it still has the expected version unless that is null. Returns the number of deleted rows.
+     */
+    public int delete(Long id, Long expectedVersion) {
+        return inTransaction(shardOf(id), shard -> {
+            int deleted = expectedVersion == null ? shard.update("delete from content where id = ?", id)
+                    : shard.update("delete from content where id = ? and version = ?", id, expectedVersion);
+            if (deleted > 0)
+                logChange(shard, ContentChange.Operation.DELETED, id, null);
+            return deleted;
+        });
+    }
+
+    /**
+     * Appends to the change log of the shard, in the transaction of the write. Deletes are tombstones without a content.
+     */
+    private void logChange(JdbcTemplate shard, ContentChange.Operation operation, Long id, ContentVo vo) {
+        Long changeId = shard.queryForObject(changeSequenceQuery, Long.class);
+        shard.update("insert into content_change(id, content_id, operation, title, description, year_of_release, changed_at) values (?, ?, ?, ?, ?, ?, ?)",
+                changeId, id, operation.name(), vo == null ? null : vo.getTitle(), vo == null ? null : vo.getDescription(),
+                vo == null ? null : vo.getYearOfRelease(), Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Gives up to limit committed changes of every shard their feed position, each shard in a transaction of its own, and
+     * returns the last position handed out. The caller holds the lock of the primary's position row, passes in the
+     * position stored there and moves it on to the returned one once this has returned, so every position up to the stored
+     * one has been committed on its shard.
+     * <p>
+     * Positions are handed out after the highest one found on any shard: a run that failed before the position row was
+     * moved on leaves committed positions above it behind, and they are skipped instead of being handed out twice.
+     */
+    public long sequenceChanges(long lastSeq, int limit) {
+        long last = lastSeq;
+        for (Long shardLast : fanOut(shard -> shard.queryForObject("select max(seq) from content_change", Long.class)))
+            if (shardLast != null)
+                last = Math.max(last, shardLast);
+        for (int i = 0; i < shards.size(); i++) {
+            long after = last;
+            last = inTransaction(i, shard -> {
+                List<Long> ids = shard.queryForList("select id from content_change where seq is null order by id limit ?", Long.class, limit);
+                List<Object[]> positions = new ArrayList<>(ids.size());
+                long seq = after;
+                for (Long id : ids)
+                    positions.add(new Object[]{++seq, id});
+                if (!positions.isEmpty())
+                    shard.batchUpdate("update content_change set seq = ? where id = ?", positions);
+                return seq;
+            });
+        }
+        return last;
+    }
+
+    /**
+     * Changes positioned after the given position and up to the last position, merged by position across the shards.
+     * Positions above the last one stored in the primary's position row may belong to a run that has not finished yet.
+     */
+    public List<ContentChangeVo> findChanges(long after, long last, int limit) {
+        return KWayMerge.merge(fanOut(shard -> shard.query(CHANGE_COLUMNS + " where seq > ? and seq <= ? order by seq limit ?",
+                CHANGE_MAPPER, after, last, limit)), BY_SEQ, limit);
+    }
+
+    private int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+    }
+
+    private <T> T inTransaction(int shardIndex, Function<JdbcTemplate, T> work) {
+        JdbcTemplate shard = shards.get(shardIndex).getJdbcTemplate();
+        return transactions.get(shardIndex).execute(status -> work.apply(shard));
+    }
+
+    private static List<ContentVo> findPage(JdbcTemplate shard, Long after, int limit) {
+        return shard.query(COLUMNS + " where id > ? order by id limit ?", CONTENT_MAPPER, after, limit);
+    }
+
+    private <T> List<T> fanOut(Function<JdbcTemplate, T> query) {
+        List<CompletableFuture<T>> queries = new ArrayList<>(shards.size());
+        for (NamedParameterJdbcTemplate shard : shards)
+            queries.add(CompletableFuture.supplyAsync(() -> query.apply(shard.getJdbcTemplate()), fanOutExecutor));
+        return join(queries);
+    }
+
+    /**
+     * Waits for every shard, a failing shard fails the whole query with its own exception.
+     */
+    private static <T> List<T> join(List<CompletableFuture<T>> queries) {
+        try {
+            CompletableFuture.allOf(queries.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        List<T> results = new ArrayList<>(queries.size());
+        for (CompletableFuture<T> query : queries)
+            results.add(query.join());
+        return results;
+    }
+
+    /**
+     * Stops the fan-out threads and closes the shard pools.
+     */
+    @Override
+    public void close() {
+        fanOutExecutor.shutdown();
+        for (DataSource dataSource : dataSources) {
+            if (!(dataSource instanceof Closeable))
+                continue;
+            try {
+                ((Closeable) dataSource).close();
+            } catch (IOException e) {
+                log.warn("Failed to close a shard pool", e);
+            }
+        }
+    }
+
+    /**
+     * A content written by {@link #writeAll(List)}, created unless it updated an existing row.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Written {
+
+        private final ContentVo content;
+
+        private final boolean created;
+
+    }
+
+    private static final class PageIterator implements Iterator<ContentVo> {
+
+        private final JdbcTemplate shard;
+
+        private final int pageSize;
+
+        private Iterator<ContentVo> page = Collections.emptyIterator();
+
+        private long after = Long.MIN_VALUE;
+
+        private boolean lastPage;
+
+        PageIterator(JdbcTemplate shard, int pageSize) {
+            this.shard = shard;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                List<ContentVo> contents = findPage(shard, after, pageSize);
+                lastPage = contents.size() < pageSize;
+                if (!contents.isEmpty())
+                    after = contents.get(contents.size() - 1).getId();
+                page = contents.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public ContentVo next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return page.next();
+        }
+
+    }
+
+}
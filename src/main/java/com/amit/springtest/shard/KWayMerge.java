@@ -0,0 +1,72 @@
+package com.amit.springtest.shard;
+
+import java.util.*;
+
+/**
+ * Merges inputs that are each sorted into one sorted output, looking at no more than one element per input at a time.
+ */
+final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, int limit) {
+        List<Iterator<T>> iterators = new ArrayList<>(sortedLists.size());
+        for (List<T> sortedList : sortedLists)
+            iterators.add(sortedList.iterator());
+        Iterator<T> merged = merge(iterators, comparator);
+        List<T> result = new ArrayList<>();
+        while (merged.hasNext() && result.size() < limit)
+            result.add(merged.next());
+        return result;
+    }
+
+    /**
+     * Inputs are only advanced when their current element has been handed out, so lazily fetched inputs stay lazy.
+     */
+    static <T> Iterator<T> merge(List<? extends Iterator<T>> sortedIterators, Comparator<? super T> comparator) {
+        PriorityQueue<Cursor<T>> cursors = new PriorityQueue<>(Math.max(1, sortedIterators.size()), (a, b) -> comparator.compare(a.head, b.head));
+        for (Iterator<T> iterator : sortedIterators)
+            if (iterator.hasNext())
+                cursors.add(new Cursor<>(iterator));
+
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Cursor<T> cursor = cursors.poll();
+                if (cursor == null)
+                    throw new NoSuchElementException();
+                T head = cursor.head;
+                if (cursor.advance())
+                    cursors.add(cursor);
+                return head;
+            }
+        };
+    }
+
+    private static final class Cursor<T> {
+
+        private final Iterator<T> iterator;
+
+        private T head;
+
+        Cursor(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext())
+                return false;
+            head = iterator.next();
+            return true;
+        }
+
+    }
+
+}
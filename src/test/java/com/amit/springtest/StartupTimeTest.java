@@ -0,0 +1,68 @@
+package com.amit.springtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the whole application from scratch, the way an autoscaled instance starts, and checks the time from launch
+ * to the first successful GET /api/contents against startuptest.budget-ms for the default and the fast-start profile.
+ * Run with ./gradlew startupTest.
+ */
+@Tag("startup-test")
+public class StartupTimeTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeTest.class);
+
+    private static final long BUDGET_MILLIS = Long.getLong("startuptest.budget-ms", 30_000L);
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    @Test
+    public void givenDefaultProfileWhenStartedThenFirstRequestWithinBudget() throws InterruptedException {
+        assertThat(timeToFirstRequest()).isLessThanOrEqualTo(BUDGET_MILLIS);
+    }
+
+    @Test
+    public void givenFastStartProfileWhenStartedThenFirstRequestWithinBudget() throws InterruptedException {
+        assertThat(timeToFirstRequest("fast-start")).isLessThanOrEqualTo(BUDGET_MILLIS);
+    }
+
+    private long timeToFirstRequest(String... profiles) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(BUDGET_MILLIS);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MainApplication.class)
+                .profiles(profiles)
+                .run("--server.port=0", "--spring.datasource.generate-unique-name=true")) {
+            long started = System.nanoTime();
+            String port = context.getEnvironment().getProperty("local.server.port");
+            RestTemplate restTemplate = new RestTemplateBuilder().build();
+            ResponseEntity<String> response = null;
+            while (response == null && System.nanoTime() < deadline) {
+                try {
+                    response = restTemplate.getForEntity("http://localhost:" + port + "/api/contents", String.class);
+                } catch (RestClientException e) {
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                }
+            }
+            long firstRequest = System.nanoTime();
+            assertThat(response).as("no successful request within %d ms", BUDGET_MILLIS).isNotNull();
+            assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+            log.info("Startup with profiles {}: started in {} ms, first successful request after {} ms",
+                    profiles.length == 0 ? "default" : String.join(",", profiles), (started - start) / 1_000_000, (firstRequest - start) / 1_000_000);
+            return (firstRequest - start) / 1_000_000;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.amit.springtest.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final SingleFlight<Long, String> singleFlightUnderTest = new SingleFlight<>("test", registry);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenLoadInFlightWhenSameKeyRequestedThenLoadShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlightUnderTest.execute(1L, () -> blockingLoad(release, "MI-1")));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> singleFlightUnderTest.execute(1L, () -> blockingLoad(release, "MI-1 again")));
+        awaitCoalesced(1);
+
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("MI-1");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("MI-1");
+        assertThat(loads).hasValue(1);
+        assertThat(calls("executed")).isEqualTo(1.0);
+        assertThat(registry.get(SingleFlight.IN_FLIGHT_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    public void givenFailingLoadWhenSameKeyRequestedThenExceptionSharedAndNextCallLoadsAgain() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlightUnderTest.execute(1L, () -> {
+            blockingLoad(release, null);
+            throw new IllegalStateException("Database down");
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> singleFlightUnderTest.execute(1L, () -> "MI-1"));
+        awaitCoalesced(1);
+
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class).hasMessageContaining("Database down");
+        assertThat(singleFlightUnderTest.execute(1L, () -> "MI-1")).isEqualTo("MI-1");
+    }
+
+    @Test
+    public void givenDifferentKeysWhenExecuteThenEachLoaded() {
+        assertThat(singleFlightUnderTest.execute(1L, () -> "MI-1")).isEqualTo("MI-1");
+        assertThat(singleFlightUnderTest.execute(2L, () -> "MI-2")).isEqualTo("MI-2");
+        assertThat(singleFlightUnderTest.execute(1L, () -> "MI-1 Remastered")).isEqualTo("MI-1 Remastered");
+        assertThat(calls("executed")).isEqualTo(3.0);
+        assertThat(calls("coalesced")).isZero();
+    }
+
+    @Test
+    public void givenForgottenLoadWhenSameKeyRequestedThenNewLoadStarted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> singleFlightUnderTest.execute(1L, () -> blockingLoad(release, "MI-1")));
+        awaitInFlight(1);
+
+        singleFlightUnderTest.forgetAll();
+
+        assertThat(singleFlightUnderTest.execute(1L, () -> "MI-1 Remastered")).isEqualTo("MI-1 Remastered");
+        release.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("MI-1");
+        assertThat(calls("coalesced")).isZero();
+    }
+
+    private String blockingLoad(CountDownLatch release, String value) {
+        loads.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private double calls(String outcome) {
+        return registry.get(SingleFlight.CALLS_METRIC).tags("outcome", outcome).counter().count();
+    }
+
+    private void awaitInFlight(int loadsStarted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads.get() < loadsStarted && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(loads).hasValue(loadsStarted);
+    }
+
+    private void awaitCoalesced(int coalescedCalls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < coalescedCalls && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(calls("coalesced")).isEqualTo((double) coalescedCalls);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.amit.springtest.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DataSourceWarmUpTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    private final ContentProperties contentProperties = new ContentProperties();
+
+    @Test
+    public void givenDataSourceWhenWarmUpThenValidatedAndReturned() throws SQLException {
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.isValid(anyInt())).willReturn(true);
+
+        new DataSourceWarmUp(dataSource, contentProperties).run(null);
+
+        then(connection).should().isValid(anyInt());
+        then(connection).should(never()).createStatement();
+        then(connection).should().close();
+    }
+
+    @Test
+    public void givenValidationQueryWhenWarmUpThenQueryRunAndReturned() throws SQLException {
+        contentProperties.getWarmUp().setValidationQuery("select 1");
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.createStatement()).willReturn(statement);
+
+        new DataSourceWarmUp(dataSource, contentProperties).run(null);
+
+        then(statement).should().execute("select 1");
+        then(statement).should().close();
+        then(connection).should().close();
+    }
+
+    @Test
+    public void givenFailingQueryWhenWarmUpThenConnectionStillReturned() throws SQLException {
+        contentProperties.getWarmUp().setValidationQuery("select 1");
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.execute(anyString())).willThrow(new SQLException("Table not found"));
+
+        new DataSourceWarmUp(dataSource, contentProperties).run(null);
+
+        then(connection).should().close();
+    }
+
+    @Test
+    public void givenInvalidConnectionWhenWarmUpThenConnectionStillReturned() throws SQLException {
+        given(dataSource.getConnection()).willReturn(connection);
+        given(connection.isValid(anyInt())).willReturn(false);
+
+        new DataSourceWarmUp(dataSource, contentProperties).run(null);
+
+        then(connection).should().close();
+    }
+
+    @Test
+    public void givenWarmUpDisabledWhenRunThenNoConnection() {
+        contentProperties.getWarmUp().setEnabled(false);
+
+        new DataSourceWarmUp(dataSource, contentProperties).run(null);
+
+        then(dataSource).shouldHaveNoMoreInteractions();
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.amit.springtest.controller;
+
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.service.ContentService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlGroup;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and latency harness for /api/contents, run with ./gradlew loadTest.
+ * Seeds loadtest.rows contents on top of the createContent.sql fixtures, then loadtest.threads workers send
+ * loadtest.requests requests in total, picking an operation at random according to {@link Operation#weight}.
+ * All workers count as one client, so the per-client rate limit is switched off; the concurrency limit stays on.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "content.rate-limit.enabled=false")
+@SqlGroup({
+        @Sql(value = "classpath:createContent.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD),
+        @Sql(value = "classpath:deleteContent.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+})
+@Tag("load-test")
+public class ContentApiLoadTest {
+
+    private enum Operation {
+        READ_BY_ID(50), LIST(15), FILTER_BY_YEAR(15), CREATE(10), UPDATE(5), DELETE(5);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final int SEED_CHUNK = 10_000;
+
+    @LocalServerPort
+    private Long port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private ContentService contentService;
+
+    @Value("${loadtest.rows:10000}")
+    private int rows;
+
+    @Value("${loadtest.threads:8}")
+    private int threads;
+
+    @Value("${loadtest.requests:20000}")
+    private int requests;
+
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    private List<Long> seededIds;
+
+    @Test
+    public void givenSeededContentsWhenMixedWorkloadThenReportLatencyAndThroughput() throws Exception {
+        seededIds = seed();
+        for (Operation operation : Operation.values())
+            stats.put(operation, new EndpointStats());
+
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                while (remaining.decrementAndGet() >= 0)
+                    execute(nextOperation());
+            }));
+        }
+        for (Future<?> worker : workers)
+            worker.get();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        report(elapsed);
+        long errors = stats.values().stream().mapToLong(s -> s.errors.sum()).sum();
+        assertThat(errors).isZero();
+    }
+
+    private List<Long> seed() {
+        List<Long> ids = new ArrayList<>(rows);
+        for (int from = 0; from < rows; from += SEED_CHUNK) {
+            List<ContentVo> contents = new ArrayList<>(SEED_CHUNK);
+            for (int i = from; i < Math.min(from + SEED_CHUNK, rows); i++)
+                contents.add(ContentVo.builder().title("Load-" + i).description("Seeded content " + i).yearOfRelease(1950L + i % 70).build());
+            ids.addAll(contentService.addContents(contents).stream().map(BulkResultVo::getId).collect(Collectors.toList()));
+        }
+        return ids;
+    }
+
+    private Operation nextOperation() {
+        int total = Arrays.stream(Operation.values()).mapToInt(o -> o.weight).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Operation operation : Operation.values()) {
+            pick -= operation.weight;
+            if (pick < 0)
+                return operation;
+        }
+        return Operation.READ_BY_ID;
+    }
+
+    private void execute(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String url = "http://localhost:" + port + "/api/contents";
+        long id = seededIds.get(random.nextInt(seededIds.size()));
+        long start = System.nanoTime();
+        ResponseEntity<?> response;
+        switch (operation) {
+            case READ_BY_ID:
+                response = testRestTemplate.getForEntity(url + "/{id}", ContentVo.class, id);
+                break;
+            case LIST:
+                response = testRestTemplate.getForEntity(url + "?after={after}&limit=50", ContentVo[].class, id);
+                break;
+            case FILTER_BY_YEAR:
+                long yearFrom = 1950L + random.nextInt(70);
+                response = testRestTemplate.getForEntity(url + "?yearFrom={from}&yearTo={to}&limit=50", ContentVo[].class, yearFrom, yearFrom + 1);
+                break;
+            case CREATE:
+                response = testRestTemplate.postForEntity(url, newContent(random), ContentVo.class);
+                if (response.getBody() != null)
+                    createdIds.add(((ContentVo) response.getBody()).getId());
+                break;
+            case UPDATE:
+                response = testRestTemplate.exchange(url + "/{id}", HttpMethod.PUT, new HttpEntity<>(newContent(random)), Void.class, id);
+                break;
+            default:
+                Long createdId = createdIds.poll();
+                if (createdId == null) {
+                    execute(Operation.CREATE);
+                    return;
+                }
+                response = testRestTemplate.exchange(url + "/{id}", HttpMethod.DELETE, null, Void.class, createdId);
+        }
+        stats.get(operation).record(System.nanoTime() - start, response.getStatusCode().is2xxSuccessful());
+    }
+
+    private ContentVo newContent(ThreadLocalRandom random) {
+        return ContentVo.builder().title("Load-" + random.nextInt()).yearOfRelease(1950L + random.nextInt(70)).build();
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format("%nLoad test: %d seeded rows, %d threads, %d requests in %.2f s (%.0f req/s)", rows, threads, requests, seconds, requests / seconds));
+        System.out.println(String.format("%-16s %8s %8s %10s %10s %10s %10s", "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        stats.forEach((operation, endpointStats) -> {
+            long[] latencies = endpointStats.sortedLatencies();
+            System.out.println(String.format("%-16s %8d %8d %10.0f %10.2f %10.2f %10.2f", operation, latencies.length, endpointStats.errors.sum(), latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999)));
+        });
+    }
+
+    private double percentile(long[] sortedLatencies, double quantile) {
+        if (sortedLatencies.length == 0)
+            return 0;
+        int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    private static class EndpointStats {
+
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean success) {
+            latencies.add(latencyNanos);
+            if (!success)
+                errors.increment();
+        }
+
+        long[] sortedLatencies() {
+            long[] values = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(values);
+            return values;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.amit.springtest.controller;
+
+import com.amit.springtest.bean.ContentPageVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.config.AsyncConfig;
+import com.amit.springtest.service.ContentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.amit.springtest.controller.ResponseBodyMatchers.responseBody;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ContentAsyncController.class)
+@ActiveProfiles("test")
+public class ContentAsyncControllerTest {
+
+    private static final AtomicBoolean SATURATED = new AtomicBoolean();
+
+    @TestConfiguration
+    static class ExecutorConfig {
+
+        @Bean(name = AsyncConfig.CONTENT_EXECUTOR)
+        public Executor contentExecutor() {
+            return command -> {
+                if (SATURATED.get())
+                    throw new RejectedExecutionException("Content executor is saturated");
+                command.run();
+            };
+        }
+
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ContentService contentService;
+
+    @Test
+    public void givenContentWhenGetAsyncThenReturnContent() {
+        SATURATED.set(false);
+        ContentVo content = ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).build();
+        when(contentService.getContent(1L)).thenReturn(content);
+        try {
+            MvcResult result = mockMvc.perform(get("/api/async/contents/{id}", 1L))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(responseBody().containsObjectAsJson(content, ContentVo.class));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenYearWhenGetAsyncThenCallLatestContents() {
+        SATURATED.set(false);
+        when(contentService.getLatestContents(2000L)).thenReturn(Collections.emptyList());
+        try {
+            MvcResult result = mockMvc.perform(get("/api/async/contents").param("yearOfRelease", "2000"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+            verify(contentService, times(1)).getLatestContents(2000L);
+            verify(contentService, never()).getContents();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenNoYearWhenGetAsyncThenFirstPage() {
+        SATURATED.set(false);
+        when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(Collections.emptyList(), 1L));
+        try {
+            MvcResult result = mockMvc.perform(get("/api/async/contents"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(header().string(ContentController.NEXT_CURSOR_HEADER, "1"));
+            verify(contentService, times(1)).getContentPage(null, null);
+            verify(contentService, never()).getContents();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenContentWhenPostAsyncThenReturnCreated() {
+        SATURATED.set(false);
+        ContentVo content = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        when(contentService.addContent(content)).thenReturn(content);
+        try {
+            MvcResult result = mockMvc.perform(post("/api/async/contents").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(content)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenMissingContentWhenDeleteAsyncThenReturnBadRequest() {
+        SATURATED.set(false);
+        doThrow(new IllegalArgumentException("Content not present")).when(contentService).deleteContent(5L);
+        try {
+            MvcResult result = mockMvc.perform(delete("/api/async/contents/{id}", 5L))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenSaturatedExecutorWhenGetAsyncThenReturnServiceUnavailable() {
+        SATURATED.set(true);
+        try {
+            mockMvc.perform(get("/api/async/contents/{id}", 1L))
+                    .andExpect(status().isServiceUnavailable());
+            verify(contentService, never()).getContent(anyLong());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            SATURATED.set(false);
+        }
+    }
+
+}
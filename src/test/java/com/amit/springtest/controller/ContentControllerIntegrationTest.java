@@ -3,6 +3,8 @@ package com.amit.springtest.controller;
 import com.amit.springtest.bean.ErrorVo;
 import com.amit.springtest.entity.Content;
 import com.amit.springtest.repository.ContentRepository;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlGroup;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -40,6 +43,17 @@ public class ContentControllerIntegrationTest {
     @Autowired
     private ContentRepository contentRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Fixtures are written with plain SQL, which the second level cache cannot see.
+     */
+    @BeforeEach
+    public void evictSecondLevelCache() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
     @Test
     @Tag("integration-test")
     public void givenContentWhenUpdatedThenUpdated() throws Exception {
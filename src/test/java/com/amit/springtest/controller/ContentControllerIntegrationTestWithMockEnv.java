@@ -5,6 +5,10 @@ import com.amit.springtest.entity.Content;
 import com.amit.springtest.repository.ContentRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -14,6 +18,7 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlGroup;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -21,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static com.amit.springtest.controller.ResponseBodyMatchers.*;
+import static org.hamcrest.CoreMatchers.containsString;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
 @AutoConfigureMockMvc
@@ -39,6 +45,20 @@ public class ContentControllerIntegrationTestWithMockEnv {
     @Autowired
     private ContentRepository contentRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Fixtures are written with plain SQL, which the second level cache cannot see.
+     */
+    @BeforeEach
+    public void evictSecondLevelCache() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
     @Test
     public void givenContentWhenUpdatedThenUpdated() throws Exception {
         ContentVo vo = new ContentVo(3L, "MI-4", "Test", 2010L);
@@ -59,4 +79,38 @@ public class ContentControllerIntegrationTestWithMockEnv {
         assertThat(optionalContent.isPresent()).isFalse();
     }
 
+    @Test
+    public void givenContentWithIdWhenAddedThenCreatedUnderGeneratedId() throws Exception {
+        ContentVo vo = new ContentVo(1L, "MI-4", "Test", 2018L);
+        String response = mockMvc.perform(post("/api/contents").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(vo))).andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        ContentVo created = objectMapper.readValue(response, ContentVo.class);
+        assertThat(created.getId()).isNotEqualTo(1L);
+        assertEquals("MI-4", contentRepository.findById(created.getId()).get().getTitle());
+        assertEquals("MI-1", contentRepository.findById(1L).get().getTitle());
+    }
+
+    @Test
+    public void givenContentsWhenGetContentsThenLayerMetricsPublished() throws Exception {
+        mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+
+        Timer repositoryTimer = meterRegistry.find("content.repository").tag("method", "findByIdGreaterThanOrderByIdAsc").timer();
+        assertThat(repositoryTimer).isNotNull();
+        assertThat(repositoryTimer.count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.find("content.repository.rows").tag("method", "findByIdGreaterThanOrderByIdAsc").summary()).isNotNull();
+        assertThat(meterRegistry.find("content.service").tag("method", "getContentPage").timer()).isNotNull();
+
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk()).andExpect(content().string(containsString("content_repository_seconds")));
+    }
+
+    @Test
+    public void givenPooledDataSourceWhenStartedThenPoolWarmAndMetricsPublished() throws Exception {
+        assertThat(meterRegistry.find("hikaricp.connections.active").tag("pool", "content-pool").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.pending").tag("pool", "content-pool").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", "content-pool").gauge().value()).isGreaterThanOrEqualTo(1.0);
+
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk()).andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")));
+    }
+
 }
@@ -1,8 +1,19 @@
 package com.amit.springtest.controller;
 
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentBatchVo;
+import com.amit.springtest.bean.ContentChangePageVo;
+import com.amit.springtest.bean.ContentChangeVo;
+import com.amit.springtest.bean.ContentPageVo;
 import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.cache.ContentListSnapshots;
+import com.amit.springtest.config.ContentProperties;
+import com.amit.springtest.entity.ContentChange;
+import com.amit.springtest.limit.RateLimitExceededException;
 import com.amit.springtest.service.ContentService;
+import com.amit.springtest.service.ContentWriteBehindQueue;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -10,20 +21,30 @@ import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import static com.amit.springtest.controller.ResponseBodyMatchers.responseBody;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ContentController.class)
@@ -36,9 +57,15 @@ public class ContentControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ContentProperties contentProperties;
+
     @MockBean
     private ContentService contentService;
 
+    @MockBean
+    private ContentWriteBehindQueue contentWriteBehindQueue;
+
     private List<ContentVo> actualContents = new ArrayList<>();
 
     private ContentVo actualContent;
@@ -56,11 +83,11 @@ public class ContentControllerTest {
         expectedContentVos.add(ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).build());
 
         try {
-            when(contentService.getContents()).thenReturn(actualContents);
+            when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(actualContents, null));
 
             MvcResult result = mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
 
-            verify(contentService, times(1)).getContents();
+            verify(contentService, times(1)).getContentPage(null, null);
             verify(contentService, never()).getLatestContents(anyLong());
 
             String actualOutput = result.getResponse().getContentAsString();
@@ -86,11 +113,11 @@ public class ContentControllerTest {
         List<ContentVo> expectedContentVos = new ArrayList<>();
         expectedContentVos.add(ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).build());
         try {
-            when(contentService.getContents()).thenReturn(actualContents);
+            when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(actualContents, null));
 
             mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(responseBody().containsListOfObjectAsJson(expectedContentVos, ContentVo.class));
 
-            verify(contentService, times(1)).getContents();
+            verify(contentService, times(1)).getContentPage(null, null);
             verify(contentService, never()).getLatestContents(anyLong());
 
         } catch (Exception e) {
@@ -99,6 +126,66 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenNoLimitWhenGetContentsThenFirstPageWithNextCursor() {
+
+        try {
+            when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(actualContents, 1L));
+
+            mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(header().string(ContentController.NEXT_CURSOR_HEADER, "1"));
+
+            verify(contentService, never()).getContents();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenLimitWhenGetContentsThenPageWithNextCursor() {
+
+        List<ContentVo> expectedContentVos = new ArrayList<>();
+        expectedContentVos.add(ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).build());
+        try {
+            when(contentService.getContentPage(any(), any())).thenReturn(new ContentPageVo(actualContents, 1L));
+
+            mockMvc.perform(get("/api/contents").param("after", "0").param("limit", "1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(header().string(ContentController.NEXT_CURSOR_HEADER, "1")).andExpect(responseBody().containsListOfObjectAsJson(expectedContentVos, ContentVo.class));
+
+            verify(contentService, times(1)).getContentPage(ArgumentMatchers.eq(0L), ArgumentMatchers.eq(1));
+            verify(contentService, never()).getContents();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenExportContentsThenNewlineDelimitedJson() {
+
+        ContentVo secondContent = ContentVo.builder().title("MI-2").yearOfRelease(2005L).id(2L).build();
+        try {
+            doAnswer(invocation -> {
+                Consumer<ContentVo> consumer = invocation.getArgument(0);
+                consumer.accept(actualContent);
+                consumer.accept(secondContent);
+                return 2L;
+            }).when(contentService).exportContents(any(Consumer.class));
+
+            MvcResult result = mockMvc.perform(get("/api/contents/export")).andExpect(status().isOk()).andExpect(content().contentTypeCompatibleWith(ContentController.NDJSON_VALUE)).andReturn();
+
+            String expectedOutput = objectMapper.writeValueAsString(actualContent) + "\n" + objectMapper.writeValueAsString(secondContent) + "\n";
+            assertThat(result.getResponse().getContentAsString()).isEqualTo(expectedOutput);
+            verify(contentService, never()).getContents();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void givenYearOfReleaseWhenGetContentsThenContentsUsingMatchers() {
 
@@ -118,6 +205,26 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenYearRangeWhenGetContentsThenContentsUsingMatchers() {
+
+        List<ContentVo> expectedContentVos = new ArrayList<>();
+        expectedContentVos.add(ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).build());
+        try {
+            when(contentService.getContentsByYearRange(any(), any(), any())).thenReturn(actualContents);
+
+            mockMvc.perform(get("/api/contents").param("yearFrom", "2003").param("yearTo", "2005").param("limit", "10").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(responseBody().containsListOfObjectAsJson(expectedContentVos, ContentVo.class));
+
+            verify(contentService, times(1)).getContentsByYearRange(ArgumentMatchers.eq(2003L), ArgumentMatchers.eq(2005L), ArgumentMatchers.eq(10));
+            verify(contentService, never()).getContentPage(any(), any());
+            verify(contentService, never()).getContents();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void givenIdWhenGetContentThenContentUsingMatchers() {
 
@@ -135,6 +242,74 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenQueryWhenSearchContentsThenRankedContents() {
+
+        try {
+            when(contentService.searchContents("mission", 10, 5)).thenReturn(actualContents);
+
+            mockMvc.perform(get("/api/contents/search").param("q", "mission").param("offset", "10").param("limit", "5"))
+                    .andExpect(status().isOk())
+                    .andExpect(responseBody().containsListOfObjectAsJson(actualContents, ContentVo.class));
+
+            verify(contentService, times(1)).searchContents("mission", 10, 5);
+            verify(contentService, never()).getContent(anyLong());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenIdsWhenBatchGetThenContentsInOrderAndMissingIds() {
+
+        try {
+            ContentVo secondContent = ContentVo.builder().title("MI-2").yearOfRelease(2005L).id(2L).build();
+            when(contentService.getContentsById(Arrays.asList(2L, 9L, 1L))).thenReturn(new ContentBatchVo(Arrays.asList(secondContent, actualContent), Arrays.asList(9L)));
+
+            mockMvc.perform(post("/api/contents/batch-get").contentType(MediaType.APPLICATION_JSON).content("[2, 9, 1]"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.contents[0].id").value(2))
+                    .andExpect(jsonPath("$.contents[1].title").value("MI-1"))
+                    .andExpect(jsonPath("$.missing[0]").value(9));
+
+            verify(contentService, times(1)).getContentsById(Arrays.asList(2L, 9L, 1L));
+            verify(contentService, never()).getContent(anyLong());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenSinceWhenGetChangesThenChangesWithTombstoneAndNextSince() {
+
+        try {
+            List<ContentChangeVo> changes = Arrays.asList(
+                    ContentChangeVo.builder().seq(11L).id(1L).operation(ContentChange.Operation.UPDATED).content(actualContent).changedAt(Instant.parse("2020-02-01T10:15:30Z")).build(),
+                    ContentChangeVo.builder().seq(12L).id(2L).operation(ContentChange.Operation.DELETED).changedAt(Instant.parse("2020-02-01T10:15:31Z")).build());
+            when(contentService.getChanges(10L, 2)).thenReturn(new ContentChangePageVo(changes, 12L));
+
+            mockMvc.perform(get("/api/contents/changes").param("since", "10").param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.changes[0].operation").value("UPDATED"))
+                    .andExpect(jsonPath("$.changes[0].content.title").value("MI-1"))
+                    .andExpect(jsonPath("$.changes[0].changedAt").value("2020-02-01T10:15:30Z"))
+                    .andExpect(jsonPath("$.changes[1].operation").value("DELETED"))
+                    .andExpect(jsonPath("$.changes[1].id").value(2))
+                    .andExpect(jsonPath("$.nextSince").value(12));
+
+            verify(contentService, times(1)).getChanges(10L, 2);
+            verify(contentService, never()).getContent(anyLong());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void givenContentWhenAddContentThenContentAdded() {
 
@@ -156,6 +331,69 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenRespondAsyncWhenAddContentThenContentQueued() {
+
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        try {
+            mockMvc.perform(post("/api/contents").header(ContentController.PREFER_HEADER, ContentController.RESPOND_ASYNC).content(objectMapper.writeValueAsString(inputVo)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isAccepted());
+
+            verify(contentWriteBehindQueue, times(1)).enqueue(inputVo);
+            verify(contentService, never()).addContent(isA(ContentVo.class));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenContentWithIdWhenAddContentAsyncThenQueuedWithoutId() {
+
+        ContentVo inputVo = ContentVo.builder().id(1L).title("MI-1").yearOfRelease(2004L).build();
+        try {
+            mockMvc.perform(post("/api/contents").header(ContentController.PREFER_HEADER, ContentController.RESPOND_ASYNC).content(objectMapper.writeValueAsString(inputVo)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isAccepted());
+
+            verify(contentWriteBehindQueue, times(1)).enqueue(ContentVo.builder().title("MI-1").yearOfRelease(2004L).build());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenFullQueueWhenAddContentAsyncThenServiceUnavailable() {
+
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        try {
+            doThrow(new RejectedExecutionException("Write-behind queue is full")).when(contentWriteBehindQueue).enqueue(isA(ContentVo.class));
+
+            mockMvc.perform(post("/api/contents").header(ContentController.PREFER_HEADER, ContentController.RESPOND_ASYNC).content(objectMapper.writeValueAsString(inputVo)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isServiceUnavailable()).andExpect(responseBody().containsListOfErrorsAsJson(RejectedExecutionException.class.getCanonicalName()));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenRateLimitExceededWhenGetContentThenTooManyRequests() {
+
+        try {
+            when(contentService.getContent(1L)).thenThrow(new RateLimitExceededException("Rate limit of the default budget exceeded", 2));
+
+            mockMvc.perform(get("/api/contents/{id}", 1L))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                    .andExpect(responseBody().containsListOfErrorsAsJson(RateLimitExceededException.class.getCanonicalName()));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void givenInvalidContentWhenAddContentThenFailed() {
 
@@ -171,6 +409,148 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenSnapshotModeWhenGetContentsThenSnapshotBytesServed() {
+
+        byte[] json = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8, 0};
+        ContentListSnapshots.Snapshot snapshot = new ContentListSnapshots.Snapshot(json, gzip, "\"0abc\"");
+        contentProperties.getSnapshot().setEnabled(true);
+        try {
+            when(contentService.getContentsSnapshot(2000L)).thenReturn(snapshot);
+
+            mockMvc.perform(get("/api/contents").param("yearOfRelease", "2000"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"0abc\""))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(content().bytes(json));
+            mockMvc.perform(get("/api/contents").param("yearOfRelease", "2000").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(content().bytes(gzip));
+            mockMvc.perform(get("/api/contents").param("yearOfRelease", "2000").header(HttpHeaders.IF_NONE_MATCH, "\"0abc\""))
+                    .andExpect(status().isNotModified());
+
+            verify(contentService, never()).getLatestContents(anyLong());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            contentProperties.getSnapshot().setEnabled(false);
+        }
+    }
+
+    @Test
+    public void givenSnapshotModeWhenGetContentsAsCborThenNoSnapshot() {
+
+        contentProperties.getSnapshot().setEnabled(true);
+        try {
+            when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(actualContents, null));
+
+            mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_CBOR)).andExpect(status().isOk());
+
+            verify(contentService, times(1)).getContentPage(null, null);
+            verify(contentService, never()).getContentsSnapshot(any());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            contentProperties.getSnapshot().setEnabled(false);
+        }
+    }
+
+    @Test
+    public void givenCborAcceptWhenGetContentsThenCborContents() {
+
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        try {
+            when(contentService.getContentPage(null, null)).thenReturn(new ContentPageVo(actualContents, null));
+
+            MvcResult result = mockMvc.perform(get("/api/contents").accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                    .andReturn();
+
+            List<ContentVo> actualOutput = cborMapper.readValue(result.getResponse().getContentAsByteArray(), cborMapper.getTypeFactory().constructCollectionType(List.class, ContentVo.class));
+            assertThat(actualOutput).isEqualTo(actualContents);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenCborContentsWhenAddContentsThenCborResults() {
+
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        List<ContentVo> inputVos = Arrays.asList(ContentVo.builder().title("MI-1").yearOfRelease(2004L).build(), ContentVo.builder().title("MI-2").yearOfRelease(2006L).build());
+        List<BulkResultVo> expectedResults = Arrays.asList(BulkResultVo.builder().index(0).id(1L).status(BulkResultVo.Status.CREATED).build(), BulkResultVo.builder().index(1).id(2L).status(BulkResultVo.Status.CREATED).build());
+        try {
+            when(contentService.addContents(anyList())).thenReturn(expectedResults);
+
+            MvcResult result = mockMvc.perform(post("/api/contents/bulk").content(cborMapper.writeValueAsBytes(inputVos)).contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            List<BulkResultVo> actualResults = cborMapper.readValue(result.getResponse().getContentAsByteArray(), cborMapper.getTypeFactory().constructCollectionType(List.class, BulkResultVo.class));
+            assertThat(actualResults).isEqualTo(expectedResults);
+
+            ArgumentCaptor<List<ContentVo>> captor = ArgumentCaptor.forClass(List.class);
+            verify(contentService, times(1)).addContents(captor.capture());
+            assertThat(captor.getValue()).isEqualTo(inputVos);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenContentsWhenAddContentsThenPerItemResults() {
+
+        List<ContentVo> inputVos = Arrays.asList(ContentVo.builder().title("MI-1").yearOfRelease(2004L).build(), ContentVo.builder().yearOfRelease(2005L).build());
+        List<BulkResultVo> expectedResults = Arrays.asList(BulkResultVo.builder().index(0).id(1L).status(BulkResultVo.Status.CREATED).build(), BulkResultVo.builder().index(1).status(BulkResultVo.Status.INVALID).build());
+        try {
+            when(contentService.addContents(anyList())).thenReturn(expectedResults);
+
+            mockMvc.perform(post("/api/contents/bulk").content(objectMapper.writeValueAsString(inputVos)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(responseBody().containsListOfObjectAsJson(expectedResults, BulkResultVo.class));
+
+            ArgumentCaptor<List<ContentVo>> captor = ArgumentCaptor.forClass(List.class);
+            verify(contentService, times(1)).addContents(captor.capture());
+            assertThat(captor.getValue()).isEqualTo(inputVos);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenNdjsonContentsWhenAddContentsThenAllItemsPassed() {
+
+        List<ContentVo> inputVos = Arrays.asList(ContentVo.builder().title("MI-1").yearOfRelease(2004L).build(), ContentVo.builder().title("MI-2").yearOfRelease(2005L).build());
+        try {
+            when(contentService.addContents(anyList())).thenReturn(new ArrayList<>());
+            String body = objectMapper.writeValueAsString(inputVos.get(0)) + "\n" + objectMapper.writeValueAsString(inputVos.get(1)) + "\n";
+
+            mockMvc.perform(post("/api/contents/bulk").content(body).contentType(ContentController.NDJSON_VALUE)).andExpect(status().isOk());
+
+            ArgumentCaptor<List<ContentVo>> captor = ArgumentCaptor.forClass(List.class);
+            verify(contentService, times(1)).addContents(captor.capture());
+            assertThat(captor.getValue()).isEqualTo(inputVos);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void givenContentWhenUpdateContentThenContentUpdated() {
 
@@ -254,5 +634,52 @@ public class ContentControllerTest {
         }
     }
 
+    @Test
+    public void givenMatchingEtagWhenGetContentThenNotModified() {
+
+        ContentVo versionedContent = ContentVo.builder().title("MI-1").yearOfRelease(2004L).id(1L).version(3L).build();
+        try {
+            when(contentService.getContent(1L)).thenReturn(versionedContent);
+
+            mockMvc.perform(get("/api/contents/{id}", 1L).accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+            MvcResult result = mockMvc.perform(get("/api/contents/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"3\"").accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotModified()).andReturn();
+            assertThat(result.getResponse().getContentAsString()).isEmpty();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenIfMatchWhenUpdateContentThenConditionalUpdate() {
+
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        try {
+            mockMvc.perform(put("/api/contents/{id}", 1L).header(HttpHeaders.IF_MATCH, "\"3\"").content(objectMapper.writeValueAsString(inputVo)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isNoContent());
+
+            verify(contentService, times(1)).updateContent(ArgumentMatchers.eq(1L), isA(ContentVo.class), ArgumentMatchers.eq(3L));
+            verify(contentService, never()).updateContent(anyLong(), isA(ContentVo.class));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void givenStaleIfMatchWhenDeleteContentThenPreconditionFailed() {
+
+        try {
+            doThrow(new OptimisticLockingFailureException("Content has been modified")).when(contentService).deleteContent(anyLong(), anyLong());
+            mockMvc.perform(delete("/api/contents/{id}", 1L).header(HttpHeaders.IF_MATCH, "\"2\"").accept(MediaType.APPLICATION_JSON)).andExpect(status().isPreconditionFailed()).andExpect(responseBody().containsListOfErrorsAsJson(OptimisticLockingFailureException.class.getCanonicalName()));
+
+            verify(contentService, times(1)).deleteContent(ArgumentMatchers.eq(1L), ArgumentMatchers.eq(2L));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
 
 }
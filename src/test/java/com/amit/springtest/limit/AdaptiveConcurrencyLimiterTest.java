@@ -0,0 +1,59 @@
+package com.amit.springtest.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter limiterUnderTest = new AdaptiveConcurrencyLimiter(10, 2, 12, TARGET, registry, clock::get);
+
+    @Test
+    public void givenLimitReachedWhenAcquireThenShed() {
+        for (int i = 0; i < 10; i++)
+            assertThat(limiterUnderTest.tryAcquire()).isTrue();
+
+        assertThat(limiterUnderTest.tryAcquire()).isFalse();
+        assertThat(registry.get("content.concurrency.in-flight").gauge().value()).isEqualTo(10.0);
+        assertThat(registry.get("content.concurrency.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void givenFastBusyRequestsWhenReleasedThenLimitGrowsUpToMaximum() {
+        for (int i = 0; i < 10; i++)
+            limiterUnderTest.tryAcquire();
+        for (int i = 0; i < 3; i++) {
+            limiterUnderTest.release(TARGET / 2);
+            limiterUnderTest.tryAcquire();
+        }
+
+        assertThat(limiterUnderTest.getLimit()).isEqualTo(12);
+    }
+
+    @Test
+    public void givenSlowRequestsWhenReleasedThenLimitCutOncePerTargetLatency() {
+        for (int i = 0; i < 4; i++)
+            limiterUnderTest.tryAcquire();
+
+        limiterUnderTest.release(TARGET * 2);
+        limiterUnderTest.release(TARGET * 2);
+        assertThat(limiterUnderTest.getLimit()).isEqualTo(9);
+
+        clock.addAndGet(TARGET);
+        limiterUnderTest.release(TARGET * 2);
+        assertThat(limiterUnderTest.getLimit()).isEqualTo(8);
+        assertThat(registry.get("content.concurrency.limit").gauge().value()).isEqualTo(8.0);
+    }
+
+}
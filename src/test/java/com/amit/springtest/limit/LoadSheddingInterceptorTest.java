@@ -0,0 +1,106 @@
+package com.amit.springtest.limit;
+
+import com.amit.springtest.controller.ContentController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoadSheddingInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1_000_000, registry, clock::get);
+
+    private final LoadSheddingInterceptor interceptorUnderTest = new LoadSheddingInterceptor(
+            new RateLimiter("default", 1, 5, 100, registry, clock::get),
+            new RateLimiter("list", 1, 1, 100, registry, clock::get),
+            concurrencyLimiter, new ClientIdentity("X-Client-Id", Collections.singletonList("10.0.0.1")), clock::get);
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    public void givenUnboundedListWhenListBudgetUsedThenRateLimited() throws Exception {
+        HandlerMethod getContents = getHandler("getContents");
+
+        complete(listRequest(null), getContents);
+
+        assertThat(interceptorUnderTest.preHandle(listRequest("10"), response, getContents)).isTrue();
+        assertThatThrownBy(() -> interceptorUnderTest.preHandle(listRequest(null), response, getContents))
+                .isInstanceOf(RateLimitExceededException.class)
+                .hasMessageContaining("list");
+    }
+
+    @Test
+    public void givenUntrustedCallerWhenClientHeaderChangedThenStillRateLimited() throws Exception {
+        HandlerMethod getContents = getHandler("getContents");
+
+        complete(listRequest(null, "192.168.1.7", "client-1"), getContents);
+
+        assertThatThrownBy(() -> interceptorUnderTest.preHandle(listRequest(null, "192.168.1.7", "client-2"), response, getContents))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void givenTrustedProxyWhenClientHeadersDifferThenSeparateBudgets() throws Exception {
+        HandlerMethod getContents = getHandler("getContents");
+
+        complete(listRequest(null, "10.0.0.1", "client-1"), getContents);
+
+        complete(listRequest(null, "10.0.0.1", "client-2"), getContents);
+        assertThatThrownBy(() -> interceptorUnderTest.preHandle(listRequest(null, "10.0.0.1", "client-1"), response, getContents))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void givenRequestInFlightWhenConcurrencyLimitReachedThenShedUntilCompleted() throws Exception {
+        HandlerMethod getContent = getHandler("getContent");
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/api/contents/1");
+        assertThat(interceptorUnderTest.preHandle(first, response, getContent)).isTrue();
+
+        assertThatThrownBy(() -> interceptorUnderTest.preHandle(new MockHttpServletRequest("GET", "/api/contents/2"), response, getContent))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(interceptorUnderTest.preHandle(first, response, getContent)).isTrue();
+        assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+        interceptorUnderTest.afterCompletion(first, response, getContent, null);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+        complete(new MockHttpServletRequest("GET", "/api/contents/2"), getContent);
+    }
+
+    private MockHttpServletRequest listRequest(String limit) {
+        return listRequest(limit, "127.0.0.1", "client-1");
+    }
+
+    private MockHttpServletRequest listRequest(String limit, String remoteAddress, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/contents");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Client-Id", client);
+        if (limit != null)
+            request.setParameter("limit", limit);
+        return request;
+    }
+
+    private void complete(MockHttpServletRequest request, HandlerMethod handler) throws Exception {
+        assertThat(interceptorUnderTest.preHandle(request, response, handler)).isTrue();
+        interceptorUnderTest.afterCompletion(request, response, handler, null);
+    }
+
+    private HandlerMethod getHandler(String name) {
+        Method method = Arrays.stream(ContentController.class.getMethods()).filter(m -> m.getName().equals(name)).findFirst().get();
+        return new HandlerMethod(new ContentController(null, null, null, null), method);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.amit.springtest.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RateLimiter rateLimiterUnderTest = new RateLimiter("default", 2, 3, 100, registry, clock::get);
+
+    @Test
+    public void givenBurstUsedWhenAcquireThenRejectedUntilRefilled() {
+        for (int i = 0; i < 3; i++)
+            assertThat(rateLimiterUnderTest.tryAcquire("client-1", "getContent")).isZero();
+
+        assertThat(rateLimiterUnderTest.tryAcquire("client-1", "getContent")).isBetween(TimeUnit.MILLISECONDS.toNanos(499), TimeUnit.MILLISECONDS.toNanos(501));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(501));
+        assertThat(rateLimiterUnderTest.tryAcquire("client-1", "getContent")).isZero();
+        assertThat(rateLimiterUnderTest.tryAcquire("client-1", "getContent")).isPositive();
+    }
+
+    @Test
+    public void givenExhaustedClientWhenOtherClientOrEndpointThenAllowed() {
+        for (int i = 0; i < 4; i++)
+            rateLimiterUnderTest.tryAcquire("client-1", "getContent");
+
+        assertThat(rateLimiterUnderTest.tryAcquire("client-2", "getContent")).isZero();
+        assertThat(rateLimiterUnderTest.tryAcquire("client-1", "getContents")).isZero();
+        assertThat(registry.get(RateLimiter.METRIC).tags("limiter", "default", "endpoint", "getContent", "outcome", "rejected").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get(RateLimiter.METRIC).tags("limiter", "default", "endpoint", "getContent", "outcome", "allowed").counter().count()).isEqualTo(4.0);
+    }
+
+}
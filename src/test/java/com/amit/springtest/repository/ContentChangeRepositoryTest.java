@@ -0,0 +1,42 @@
+package com.amit.springtest.repository;
+
+import com.amit.springtest.entity.ContentChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+public class ContentChangeRepositoryTest {
+
+    @Autowired
+    private ContentChangeRepository contentChangeRepositoryUnderTest;
+
+    @Test
+    public void givenChangesWhenSavedThenUnsequencedUntilPositioned(){
+        ContentChange first = contentChangeRepositoryUnderTest.save(ContentChange.builder().contentId(1L).operation(ContentChange.Operation.CREATED).title("MI-1").changedAt(Instant.now()).build());
+        ContentChange second = contentChangeRepositoryUnderTest.save(ContentChange.builder().contentId(1L).operation(ContentChange.Operation.DELETED).changedAt(Instant.now()).build());
+        assertThat(first.getSeq()).isNull();
+
+        assertThat(contentChangeRepositoryUnderTest.findBySeqIsNullOrderByIdAsc(PageRequest.of(0, 10))).extracting(ContentChange::getId).containsExactly(first.getId(), second.getId());
+        assertThat(contentChangeRepositoryUnderTest.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    public void givenSinceWhenFindBySeqGreaterThanThenBoundedBatchInOrder(){
+        for (long id = 1; id <= 5; id++)
+            contentChangeRepositoryUnderTest.save(ContentChange.builder().seq(100 + id).contentId(id).operation(ContentChange.Operation.CREATED).title("MI-" + id).changedAt(Instant.now()).build());
+
+        List<ContentChange> changes = contentChangeRepositoryUnderTest.findBySeqGreaterThanOrderBySeqAsc(102L, PageRequest.of(0, 2));
+
+        assertThat(changes).extracting(ContentChange::getContentId).containsExactly(3L, 4L);
+        assertThat(contentChangeRepositoryUnderTest.findBySeqGreaterThanOrderBySeqAsc(changes.get(1).getSeq(), PageRequest.of(0, 2)))
+                .extracting(ContentChange::getContentId).containsExactly(5L);
+    }
+
+}
@@ -1,39 +1,194 @@
 package com.amit.springtest.repository;
 
+import com.amit.springtest.bean.ContentVo;
 import com.amit.springtest.entity.Content;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.amit.springtest.repository.ContentRepositoryTest$CapturingStatementInspector")
 public class ContentRepositoryTest {
 
+    /**
+     * Records every statement Hibernate prepares, so tests can look at the SQL behind a repository method.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+    }
+
     @Autowired
     private ContentRepository contentRepositoryUnderTest;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    /**
+     * Fixtures are written with plain SQL and rolled back or deleted after each test, neither of which the second level cache can see.
+     */
+    @BeforeEach
+    public void evictSecondLevelCache() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
     @Test
     @Sql("classpath:createContent.sql")
-    public void givenYearWhenFindAllByReleaseAfterThenReturnContent(){
-        Optional<List<Content>> optionalContents = contentRepositoryUnderTest.findAllByYearOfReleaseAfter(2004L);
-        assertThat(optionalContents).isNotEmpty();
+    public void givenCursorWhenFindByIdGreaterThanThenReturnNextKeysetPage(){
+        List<Content> contents = contentRepositoryUnderTest.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 1));
+        List<Content> expectedResponse = new ArrayList<>();
+        expectedResponse.add(Content.builder().title("MI-2").id(2L).yearOfRelease(2005L).version(0L).build());
+        assertIterableEquals(expectedResponse, contents);
     }
 
     @Test
     @Sql("classpath:createContent.sql")
-    public void givenYearWhenFindAllByReleaseAfterThenReturnValidateContent(){
-        Optional<List<Content>> optionalContents = contentRepositoryUnderTest.findAllByYearOfReleaseAfter(2004L);
+    public void whenStreamAllThenReturnAllContentOrderedById(){
+        try (Stream<Content> contents = contentRepositoryUnderTest.streamAllByOrderByIdAsc()) {
+            List<Long> ids = contents.map(Content::getId).collect(Collectors.toList());
+            assertIterableEquals(Arrays.asList(1L, 2L, 3L), ids);
+        }
+    }
+
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenIdWhenUpdateContentByIdThenOneRowUpdated(){
+        int updated = contentRepositoryUnderTest.updateContentById(3L, "MI-3 Remastered", "Test", 2011L);
+        assertEquals(1, updated);
+        Optional<Content> content = contentRepositoryUnderTest.findById(3L);
+        assertThat(content).isPresent();
+        assertEquals("MI-3 Remastered", content.get().getTitle());
+        assertThat(content.get().getYearOfRelease()).isEqualTo(2011L);
+        assertThat(content.get().getUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenInvalidIdWhenDeleteContentByIdThenNoRowDeleted(){
+        assertEquals(0, contentRepositoryUnderTest.deleteContentById(10L));
+        assertEquals(1, contentRepositoryUnderTest.deleteContentById(3L));
+        assertThat(contentRepositoryUnderTest.findById(3L)).isNotPresent();
+    }
+
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenYearRangeWhenFindAllByYearOfReleaseBetweenThenReturnSortedAndLimitedContent(){
+        List<Content> contents = contentRepositoryUnderTest.findAllByYearOfReleaseBetween(2002L, 2005L, PageRequest.of(0, 1));
         List<Content> expectedResponse = new ArrayList<>();
-        expectedResponse.add(Content.builder().title("MI-2").id(2L).yearOfRelease(2005L).build());
-        expectedResponse.add(Content.builder().title("MI-3").id(3L).yearOfRelease(2010L).build());
-        assertIterableEquals(expectedResponse, optionalContents.get());
+        expectedResponse.add(Content.builder().title("MI-1").id(1L).yearOfRelease(2002L).version(0L).build());
+        assertIterableEquals(expectedResponse, contents);
+    }
+
+    /**
+     * Explains the statement Hibernate generated for the repository query, bound to the same parameters.
+     */
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenYearRangeWhenExplainThenYearOfReleaseIndexUsed(){
+        CapturingStatementInspector.STATEMENTS.clear();
+        List<Content> contents = contentRepositoryUnderTest.findAllByYearOfReleaseBetween(2003L, 2010L, PageRequest.of(0, 10));
+        assertThat(contents).extracting(Content::getId).containsExactly(2L, 3L);
+
+        List<String> statements = CapturingStatementInspector.STATEMENTS.stream().filter(sql -> sql.contains("year_of_release") && sql.contains("order by")).collect(Collectors.toList());
+        assertThat(statements).hasSize(1);
+        String plan = jdbcTemplate.queryForObject("explain " + statements.get(0), String.class, 2003L, 2010L, 10);
+        assertThat(plan).containsIgnoringCase("idx_content_year_of_release");
+    }
+
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenYearWhenFindAllProjectedByYearOfReleaseAfterThenReturnVo(){
+        List<ContentVo> contents = contentRepositoryUnderTest.findAllProjectedByYearOfReleaseAfter(2004L);
+        List<ContentVo> expectedResponse = new ArrayList<>();
+        expectedResponse.add(new ContentVo(2L, "MI-2", null, 2005L, 0L));
+        expectedResponse.add(new ContentVo(3L, "MI-3", null, 2010L, 0L));
+        assertThat(contents).containsExactlyInAnyOrderElementsOf(expectedResponse);
+    }
+
+    @Test
+    @Sql("classpath:createContent.sql")
+    public void givenStaleVersionWhenUpdateContentByIdAndVersionThenNoRowUpdated(){
+        assertEquals(1, contentRepositoryUnderTest.updateContentByIdAndVersion(3L, 0L, "MI-3 Remastered", null, 2011L));
+        assertEquals(0, contentRepositoryUnderTest.updateContentByIdAndVersion(3L, 0L, "MI-3 Again", null, 2012L));
+        assertThat(contentRepositoryUnderTest.findById(3L).get().getVersion()).isEqualTo(1L);
+        assertEquals(0, contentRepositoryUnderTest.deleteContentByIdAndVersion(3L, 0L));
+        assertEquals(1, contentRepositoryUnderTest.deleteContentByIdAndVersion(3L, 1L));
+    }
+
+    /**
+     * The second level cache is only shared between sessions, so each step runs and commits in a transaction of its own.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql("classpath:createContent.sql")
+    @Sql(value = "classpath:deleteContent.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void givenCachedContentWhenBulkUpdatedThenCacheInvalidated(){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> contentRepositoryUnderTest.findById(1L));
+        assertThat(transactionTemplate.execute(status -> contentRepositoryUnderTest.findById(1L).get().getTitle())).isEqualTo("MI-1");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1L);
+
+        transactionTemplate.execute(status -> contentRepositoryUnderTest.updateContentById(1L, "MI-1 Remastered", null, 2002L));
+
+        assertThat(transactionTemplate.execute(status -> contentRepositoryUnderTest.findById(1L).get().getTitle())).isEqualTo("MI-1 Remastered");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql("classpath:createContent.sql")
+    @Sql(value = "classpath:deleteContent.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void givenCachedYearQueryWhenBulkDeletedThenQueryCacheInvalidated(){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> contentRepositoryUnderTest.findAllProjectedByYearOfReleaseAfter(2004L));
+        assertThat(transactionTemplate.execute(status -> contentRepositoryUnderTest.findAllProjectedByYearOfReleaseAfter(2004L))).hasSize(2);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1L);
+
+        transactionTemplate.execute(status -> contentRepositoryUnderTest.deleteContentById(3L));
+
+        assertThat(transactionTemplate.execute(status -> contentRepositoryUnderTest.findAllProjectedByYearOfReleaseAfter(2004L))).extracting(ContentVo::getId).containsExactly(2L);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1L);
     }
 
 }
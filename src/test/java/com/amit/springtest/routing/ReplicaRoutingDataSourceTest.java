@@ -0,0 +1,171 @@
+package com.amit.springtest.routing;
+
+import com.amit.springtest.config.ContentProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection1;
+
+    @Mock
+    private Connection replicaConnection2;
+
+    @AfterEach
+    public void clearTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        RoutingContext.clear();
+    }
+
+    @Test
+    public void givenNoTransactionWhenGetConnectionThenPrimary() throws SQLException {
+        given(primary.getConnection()).willReturn(primaryConnection);
+
+        assertThat(newRoutingDataSource(ContentProperties.Replicas.Balancing.ROUND_ROBIN).getConnection()).isSameAs(primaryConnection);
+        then(replica1).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    public void givenReadOnlyTransactionsWhenGetConnectionThenReplicasTakeTurns() throws SQLException {
+        given(replica1.getConnection()).willReturn(replicaConnection1);
+        given(replica2.getConnection()).willReturn(replicaConnection2);
+        ReplicaRoutingDataSource routingDataSource = newRoutingDataSource(ContentProperties.Replicas.Balancing.ROUND_ROBIN);
+        readOnlyTransaction();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection1);
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection2);
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection1);
+        assertThat(registry.get(ReplicaRoutingDataSource.METRIC).tags("target", "replica").counter().count()).isEqualTo(3.0);
+        then(primary).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    public void givenClientWroteWhenSameClientReadsThenPrimaryUntilWindowPassed() throws SQLException {
+        given(primary.getConnection()).willReturn(primaryConnection);
+        given(replica1.getConnection()).willReturn(replicaConnection1);
+        ReplicaRoutingDataSource routingDataSource = newRoutingDataSource(ContentProperties.Replicas.Balancing.ROUND_ROBIN, replica1);
+        RoutingContext.setClient("writer");
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+
+        readOnlyTransaction();
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        RoutingContext.setClient("reader");
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection1);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        RoutingContext.setClient("writer");
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection1);
+        assertThat(registry.get(ReplicaRoutingDataSource.METRIC).tags("target", "primary", "reason", "read-your-writes").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void givenAnyWriteWhenSharedReadThenPrimary() throws SQLException {
+        given(primary.getConnection()).willReturn(primaryConnection);
+        ReplicaRoutingDataSource routingDataSource = newRoutingDataSource(ContentProperties.Replicas.Balancing.ROUND_ROBIN, replica1);
+        RoutingContext.setClient("writer");
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        routingDataSource.getConnection();
+
+        RoutingContext.setClient("reader");
+        readOnlyTransaction();
+        Connection connection = RoutingContext.sharedRead(() -> {
+            try {
+                return routingDataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(connection).isSameAs(primaryConnection);
+        then(replica1).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    public void givenFailingReplicaWhenReadThenSkippedUntilBackoffPassed() throws SQLException {
+        given(replica1.getConnection()).willThrow(new SQLException("Connection refused")).willReturn(replicaConnection1);
+        given(replica2.getConnection()).willThrow(new SQLException("Connection refused")).willReturn(replicaConnection2);
+        given(primary.getConnection()).willReturn(primaryConnection);
+        ReplicaRoutingDataSource routingDataSource = newRoutingDataSource(ContentProperties.Replicas.Balancing.ROUND_ROBIN);
+        readOnlyTransaction();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        then(replica1).should(times(1)).getConnection();
+        then(replica2).should(times(1)).getConnection();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection1);
+        assertThat(registry.get(ReplicaRoutingDataSource.METRIC).tags("target", "primary", "reason", "fallback").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void givenLeastConnectionsWhenReadThenLeastBusyReplica() throws SQLException {
+        HikariDataSource busy = mock(HikariDataSource.class);
+        HikariDataSource idle = mock(HikariDataSource.class);
+        HikariPoolMXBean busyPool = mock(HikariPoolMXBean.class);
+        HikariPoolMXBean idlePool = mock(HikariPoolMXBean.class);
+        given(busy.getHikariPoolMXBean()).willReturn(busyPool);
+        given(idle.getHikariPoolMXBean()).willReturn(idlePool);
+        given(busyPool.getActiveConnections()).willReturn(7);
+        given(idlePool.getActiveConnections()).willReturn(1);
+        given(idle.getConnection()).willReturn(replicaConnection2);
+        ReplicaRoutingDataSource routingDataSource = newRoutingDataSource(ContentProperties.Replicas.Balancing.LEAST_CONNECTIONS, busy, idle);
+        readOnlyTransaction();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection2);
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection2);
+        then(busy).should(never()).getConnection();
+    }
+
+    private ReplicaRoutingDataSource newRoutingDataSource(ContentProperties.Replicas.Balancing balancing, DataSource... replicas) {
+        List<DataSource> replicaList = replicas.length == 0 ? Arrays.asList(replica1, replica2) : Arrays.asList(replicas);
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(5), 100, clock::get);
+        return new ReplicaRoutingDataSource(primary, replicaList, balancing, tracker, TimeUnit.SECONDS.toNanos(30), registry, clock::get);
+    }
+
+    private void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+}
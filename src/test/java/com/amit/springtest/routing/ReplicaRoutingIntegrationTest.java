@@ -0,0 +1,105 @@
+package com.amit.springtest.routing;
+
+import com.amit.springtest.bean.ContentVo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlGroup;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and its replica. Nothing replicates between them, so the titles
+ * in a response show which one served it: the fixtures go to the primary, the replica gets its own rows before startup.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "content.replicas.enabled=true",
+        "content.replicas.urls[0]=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "content.client.trusted-proxies[0]=127.0.0.1"
+})
+@AutoConfigureMockMvc
+@SqlGroup({
+        @Sql(value = "classpath:createContent.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD),
+        @Sql(value = "classpath:deleteContent.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+})
+public class ReplicaRoutingIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    public static void createReplica() {
+        DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+        jdbcTemplate.update("insert into content(id, title, year_of_release) values (1, 'MI-1 (replica)', 2002)");
+        jdbcTemplate.update("insert into content(id, title, year_of_release) values (2, 'MI-2 (replica)', 2005)");
+    }
+
+    @Test
+    public void givenClientWithoutWritesWhenListContentsThenServedByReplica() throws Exception {
+        mockMvc.perform(get("/api/contents").header("X-Client-Id", "reader"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("MI-1 (replica)")))
+                .andExpect(content().string(not(containsString("MI-3"))));
+
+        assertThat(meterRegistry.get("content.datasource.connections").tags("target", "replica").counter().count()).isPositive();
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", "content-pool-replica-0").gauge()).isNotNull();
+    }
+
+    @Test
+    public void givenClientWroteWhenSameClientListsContentsThenServedByPrimary() throws Exception {
+        ContentVo vo = new ContentVo(1L, "MI-1 Remastered", null, 2002L);
+        mockMvc.perform(put("/api/contents/{id}", 1L).header("X-Client-Id", "writer").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(vo)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/contents").header("X-Client-Id", "writer"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("MI-1 Remastered")))
+                .andExpect(content().string(containsString("MI-3")));
+        mockMvc.perform(get("/api/contents").header("X-Client-Id", "reader"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("MI-1 (replica)")));
+    }
+
+    @Test
+    public void givenUntrustedCallerClaimsWriterHeaderWhenListContentsThenServedByReplica() throws Exception {
+        ContentVo vo = new ContentVo(1L, "MI-1 Remastered", null, 2002L);
+        mockMvc.perform(put("/api/contents/{id}", 1L).header("X-Client-Id", "writer").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(vo)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/contents").header("X-Client-Id", "writer").with(request -> {
+                    request.setRemoteAddr("192.168.1.7");
+                    return request;
+                }))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("MI-1 (replica)")));
+    }
+
+}
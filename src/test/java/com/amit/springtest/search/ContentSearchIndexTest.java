@@ -0,0 +1,74 @@
+package com.amit.springtest.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentSearchIndexTest {
+
+    private final ContentSearchIndex indexUnderTest = new ContentSearchIndex();
+
+    @Test
+    public void givenMixedCaseTextWhenTokenizeThenLowerCaseWords() {
+        assertThat(ContentSearchIndex.tokenize("Mission: Impossible - Rogue Nation (2015)"))
+                .containsExactly("mission", "impossible", "rogue", "nation", "2015");
+        assertThat(ContentSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    public void givenTitleAndDescriptionMatchesWhenSearchThenTitleRankedFirst() {
+        indexUnderTest.put(1L, "Heat", "A heist thriller in Los Angeles");
+        indexUnderTest.put(2L, "Inside Man", "Bank heist");
+        indexUnderTest.put(3L, "Heist", "Con men");
+
+        assertThat(indexUnderTest.search("heist", 0, 10)).containsExactly(3L, 1L, 2L);
+        assertThat(indexUnderTest.search("HEIST bank", 0, 10)).startsWith(2L);
+    }
+
+    @Test
+    public void givenOffsetAndLimitWhenSearchThenPage() {
+        for (long id = 1; id <= 5; id++)
+            indexUnderTest.put(id, "Movie " + id, null);
+
+        assertThat(indexUnderTest.search("movie", 0, 2)).containsExactly(1L, 2L);
+        assertThat(indexUnderTest.search("movie", 4, 2)).containsExactly(5L);
+        assertThat(indexUnderTest.search("movie", 10, 2)).isEmpty();
+        assertThat(indexUnderTest.search(" ", 0, 2)).isEmpty();
+    }
+
+    @Test
+    public void givenRewrittenContentWhenSearchThenTiesStillGoToLowerId() {
+        for (long id = 1; id <= 50; id++)
+            indexUnderTest.put(id, "Movie", null);
+        indexUnderTest.put(1L, "Movie", null);
+        indexUnderTest.put(7L, "Movie movie", null);
+
+        assertThat(indexUnderTest.search("movie", 0, 3)).containsExactly(7L, 1L, 2L);
+        assertThat(indexUnderTest.search("movie", 48, 5)).containsExactly(49L, 50L);
+    }
+
+    @Test
+    public void givenUpdatedAndRemovedContentsWhenSearchThenOnlyCurrentTermsMatch() {
+        indexUnderTest.put(1L, "Alien", null);
+        indexUnderTest.put(2L, "Aliens", null);
+        indexUnderTest.put(1L, "Predator", null);
+        indexUnderTest.remove(2L);
+
+        assertThat(indexUnderTest.search("alien aliens", 0, 10)).isEmpty();
+        assertThat(indexUnderTest.search("predator", 0, 10)).containsExactly(1L);
+        assertThat(indexUnderTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenManyRewritesWhenSearchThenCompactedIndexStillMatches() {
+        for (int round = 0; round < 3; round++)
+            for (long id = 1; id <= 1000; id++)
+                indexUnderTest.put(id, "Title " + round, "Description " + id);
+
+        assertThat(indexUnderTest.size()).isEqualTo(1000);
+        assertThat(indexUnderTest.search("0", 0, 10)).isEmpty();
+        assertThat(indexUnderTest.search("2", 0, 1000)).hasSize(1000).startsWith(2L);
+        assertThat(indexUnderTest.search("description 42", 0, 1)).containsExactly(42L);
+    }
+
+}
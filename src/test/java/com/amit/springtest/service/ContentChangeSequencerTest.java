@@ -0,0 +1,102 @@
+package com.amit.springtest.service;
+
+import com.amit.springtest.config.ContentProperties;
+import com.amit.springtest.entity.ContentChange;
+import com.amit.springtest.repository.ContentChangeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs without a test transaction, so that every write commits the way it does in the application.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(value = "classpath:deleteContent.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ContentChangeSequencerTest {
+
+    @TestConfiguration
+    @EnableConfigurationProperties(ContentProperties.class)
+    @Import(ContentChangeSequencer.class)
+    static class SequencerConfig {
+    }
+
+    @Autowired
+    private ContentChangeSequencer contentChangeSequencerUnderTest;
+
+    @Autowired
+    private ContentChangeRepository contentChangeRepository;
+
+    @Autowired
+    private ContentProperties contentProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void resetBatchSize() {
+        contentProperties.getChanges().setSequenceBatchSize(new ContentProperties.Changes().getSequenceBatchSize());
+    }
+
+    @Test
+    public void givenLongWriterWithLowerIdWhenItCommitsLateThenPositionedAfterEarlierCommits(){
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            insertChange(5L, 1L);
+            requiresNew.execute(inner -> insertChange(60L, 2L));
+            assertEquals(1L, contentChangeSequencerUnderTest.sequence());
+            return null;
+        });
+
+        assertThat(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 10))).extracting(ContentChange::getContentId).containsExactly(2L);
+        assertEquals(2L, contentChangeSequencerUnderTest.sequence());
+        assertThat(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(1L, PageRequest.of(0, 10))).extracting(ContentChange::getContentId).containsExactly(1L);
+    }
+
+    @Test
+    public void givenMoreChangesThanBatchSizeWhenSequencedThenPositionedOverSeveralRuns(){
+        contentProperties.getChanges().setSequenceBatchSize(2);
+        for (long id = 1; id <= 3; id++)
+            insertChange(id, id);
+
+        assertEquals(2L, contentChangeSequencerUnderTest.sequence());
+        assertEquals(3L, contentChangeSequencerUnderTest.sequence());
+        assertEquals(3L, contentChangeSequencerUnderTest.sequence());
+        assertThat(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 10))).extracting(ContentChange::getContentId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void givenNoPositionRowWhenSequencedThenRowCreatedWithLastPosition(){
+        jdbcTemplate.update("delete from content_change_position");
+        insertChange(1L, 1L);
+
+        assertEquals(1L, contentChangeSequencerUnderTest.sequence());
+        assertEquals(1L, jdbcTemplate.queryForObject("select last_seq from content_change_position where id = 1", Long.class).longValue());
+    }
+
+    private int insertChange(Long id, Long contentId) {
+        return jdbcTemplate.update("insert into content_change(id, content_id, operation, title, changed_at) values (?, ?, 'CREATED', ?, current_timestamp)",
+                id, contentId, "MI-" + contentId);
+    }
+
+}
@@ -1,19 +1,50 @@
 package com.amit.springtest.service;
 
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentBatchVo;
+import com.amit.springtest.bean.ContentChangePageVo;
+import com.amit.springtest.bean.ContentChangeVo;
+import com.amit.springtest.bean.ContentPageVo;
 import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.cache.ContentCache;
+import com.amit.springtest.cache.ContentListSnapshots;
+import com.amit.springtest.config.ContentProperties;
 import com.amit.springtest.entity.Content;
+import com.amit.springtest.entity.ContentChange;
+import com.amit.springtest.repository.ContentChangeRepository;
 import com.amit.springtest.repository.ContentRepository;
+import com.amit.springtest.search.ContentSearchIndex;
+import com.amit.springtest.shard.ContentShards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Path;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.BDDMockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,21 +56,158 @@ public class ContentServiceTest {
     @Mock
     private ContentRepository contentRepository;
 
-    @InjectMocks
+    @Spy
+    private ContentProperties contentProperties = new ContentProperties();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ContentCache contentCache = new ContentCache(contentProperties);
+
+    @Mock
+    private Validator validator;
+
+    @Spy
+    private ContentSearchIndex contentSearchIndex = new ContentSearchIndex();
+
+    @Spy
+    private ContentListSnapshots contentListSnapshots = new ContentListSnapshots(new ObjectMapper());
+
+    @Mock
+    private ContentChangeRepository contentChangeRepository;
+
+    @Mock
+    private ContentShards contentShards;
+
+    @Mock
+    private ContentChangeSequencer contentChangeSequencer;
+
     private ContentService contentServiceUnderTest;
 
+    /**
+     * Mockito cannot inject the Optional of the shards, so the service is built by hand, without shards unless a test asks for them.
+     */
+    @BeforeEach
+    public void createService(){
+        contentServiceUnderTest = createService(Optional.empty());
+    }
+
+    private ContentService createService(Optional<ContentShards> shards){
+        return new ContentService(contentRepository, contentProperties, entityManager, contentCache, validator, contentSearchIndex,
+                contentListSnapshots, contentChangeRepository, shards, contentChangeSequencer);
+    }
+
     @Test
     public void whenGetContentsThenAllContents(){
 
-        List<Content> contentList = Arrays.asList(Content.builder().id(1L).title("MI-1").yearOfRelease(2004L).build(),new Content(1L, "MI-2", null, 2005L));
+        List<ContentVo> contentList = Arrays.asList(ContentVo.builder().id(1L).title("MI-1").yearOfRelease(2004L).build(),new ContentVo(1L, "MI-2", null, 2005L));
         List<ContentVo> expectedContent = Arrays.asList(ContentVo.builder().id(1L).title("MI-1").yearOfRelease(2004L).build(),new ContentVo(1L, "MI-2", null, 2005L));
 
-        given(contentRepository.findAll()).willReturn(contentList);
+        given(contentRepository.findAllProjectedBy()).willReturn(contentList);
 
         List<ContentVo> contentVoList = contentServiceUnderTest.getContents();
         assertIterableEquals(expectedContent, contentVoList);
 
-        then(contentRepository).should().findAll();
+        then(contentRepository).should().findAllProjectedBy();
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void whenExportContentsThenAllContentsStreamedAndContextCleared(){
+
+        contentProperties.getExport().setClearInterval(2);
+        Stream<Content> contentStream = Stream.of(new Content(1L, "MI-1", null, 2002L), new Content(2L, "MI-2", null, 2005L), new Content(3L, "MI-3", null, 2010L));
+        List<ContentVo> expectedContent = Arrays.asList(new ContentVo(1L, "MI-1", null, 2002L), new ContentVo(2L, "MI-2", null, 2005L), new ContentVo(3L, "MI-3", null, 2010L));
+
+        given(contentRepository.streamAllByOrderByIdAsc()).willReturn(contentStream);
+
+        List<ContentVo> exported = new ArrayList<>();
+        long count = contentServiceUnderTest.exportContents(exported::add);
+        assertEquals(3, count);
+        assertIterableEquals(expectedContent, exported);
+
+        then(entityManager).should(times(1)).clear();
+        then(contentRepository).should().streamAllByOrderByIdAsc();
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenLimitWhenGetContentPageThenPageWithNextCursor(){
+
+        List<Content> contentList = Arrays.asList(new Content(1L, "MI-1", null, 2002L), new Content(2L, "MI-2", null, 2005L), new Content(3L, "MI-3", null, 2010L));
+        List<ContentVo> expectedContent = Arrays.asList(new ContentVo(1L, "MI-1", null, 2002L), new ContentVo(2L, "MI-2", null, 2005L));
+
+        given(contentRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 3))).willReturn(contentList);
+
+        ContentPageVo page = contentServiceUnderTest.getContentPage(null, 2);
+        assertIterableEquals(expectedContent, page.getContents());
+        assertThat(page.getNextCursor()).isEqualTo(2L);
+
+        then(contentRepository).should().findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 3));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenLastPageWhenGetContentPageThenNoNextCursor(){
+
+        List<Content> contentList = Arrays.asList(new Content(3L, "MI-3", null, 2010L));
+
+        given(contentRepository.findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 3))).willReturn(contentList);
+
+        ContentPageVo page = contentServiceUnderTest.getContentPage(2L, 2);
+        assertThat(page.getContents()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+
+    }
+
+    @Test
+    public void givenLimitAboveMaximumWhenGetContentPageThenLimitCapped(){
+
+        int maxSize = contentProperties.getPage().getMaxSize();
+        given(contentRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, maxSize + 1))).willReturn(Arrays.asList());
+
+        ContentPageVo page = contentServiceUnderTest.getContentPage(null, maxSize * 10);
+        assertThat(page.getContents()).isEmpty();
+
+        then(contentRepository).should().findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, maxSize + 1));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenNegativeLimitWhenGetContentPageThenException(){
+
+        assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.getContentPage(null, -1));
+
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenYearRangeWhenGetContentsByYearRangeThenBoundedContents(){
+
+        List<Content> contentList = Arrays.asList(new Content(2L, "MI-2", null, 2005L));
+        List<ContentVo> expectedContent = Arrays.asList(new ContentVo(2L, "MI-2", null, 2005L));
+
+        given(contentRepository.findAllByYearOfReleaseBetween(2003L, Long.MAX_VALUE, PageRequest.of(0, 10))).willReturn(contentList);
+
+        List<ContentVo> contentVoList = contentServiceUnderTest.getContentsByYearRange(2003L, null, 10);
+        assertIterableEquals(expectedContent, contentVoList);
+
+        then(contentRepository).should().findAllByYearOfReleaseBetween(2003L, Long.MAX_VALUE, PageRequest.of(0, 10));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenInvertedYearRangeWhenGetContentsByYearRangeThenException(){
+
+        assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.getContentsByYearRange(2010L, 2003L, null));
+
         then(contentRepository).shouldHaveNoMoreInteractions();
 
     }
@@ -47,28 +215,28 @@ public class ContentServiceTest {
     @Test
     public void givenYearWhenGetLatestContentsThenAllContents(){
 
-        Optional<List<Content>> contentList = Optional.ofNullable(Arrays.asList(new Content(1L, "MI-2", null, 2005L)));
+        List<ContentVo> contentList = Arrays.asList(new ContentVo(1L, "MI-2", null, 2005L));
         List<ContentVo> expectedContent = Arrays.asList(new ContentVo(1L, "MI-2", null, 2005L));
 
-        given(contentRepository.findAllByYearOfReleaseAfter(anyLong())).willReturn(contentList);
+        given(contentRepository.findAllProjectedByYearOfReleaseAfter(anyLong())).willReturn(contentList);
 
         List<ContentVo> contentVoList = contentServiceUnderTest.getLatestContents(2004L);
         assertIterableEquals(expectedContent, contentVoList);
 
-        then(contentRepository).should().findAllByYearOfReleaseAfter(anyLong());
+        then(contentRepository).should().findAllProjectedByYearOfReleaseAfter(anyLong());
         then(contentRepository).shouldHaveNoMoreInteractions();
 
     }
 
     @Test
-    public void givenYearWhenGetLatestContentsThenNull(){
+    public void givenNoContentsAfterYearWhenGetLatestContentsThenEmpty(){
 
-        given(contentRepository.findAllByYearOfReleaseAfter(anyLong())).willReturn(Optional.ofNullable(null));
+        given(contentRepository.findAllProjectedByYearOfReleaseAfter(anyLong())).willReturn(Collections.emptyList());
 
         List<ContentVo> contentVoList = contentServiceUnderTest.getLatestContents(2004L);
-        assertThat(contentVoList).isNull();
+        assertThat(contentVoList).isEmpty();
 
-        then(contentRepository).should().findAllByYearOfReleaseAfter(anyLong());
+        then(contentRepository).should().findAllProjectedByYearOfReleaseAfter(anyLong());
         then(contentRepository).shouldHaveNoMoreInteractions();
 
     }
@@ -99,6 +267,86 @@ public class ContentServiceTest {
 
     }
 
+    @Test
+    public void givenCachedIdWhenGetContentThenRepositoryHitOnce(){
+        Optional<Content> content = Optional.of(Content.builder().id(1L).title("MI-1").yearOfRelease(2004L).build());
+        given(contentRepository.findById(1L)).willReturn(content);
+
+        ContentVo first = contentServiceUnderTest.getContent(1L);
+        ContentVo second = contentServiceUnderTest.getContent(1L);
+        assertThat(second).isEqualTo(first);
+        assertEquals(1, contentCache.stats().hitCount());
+
+        then(contentRepository).should(times(1)).findById(ArgumentMatchers.eq(1L));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenMissingIdWhenGetContentTwiceThenMissCached(){
+        given(contentRepository.findById(-1L)).willReturn(Optional.empty());
+
+        assertThat(contentServiceUnderTest.getContent(-1L)).isNull();
+        assertThat(contentServiceUnderTest.getContent(-1L)).isNull();
+
+        then(contentRepository).should(times(1)).findById(ArgumentMatchers.eq(-1L));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenCachedIdWhenDeleteContentThenCacheInvalidated(){
+        Content content = Content.builder().id(1L).title("MI-1").yearOfRelease(2004L).build();
+        given(contentRepository.findById(1L)).willReturn(Optional.of(content), Optional.empty());
+        given(contentRepository.deleteContentById(1L)).willReturn(1);
+
+        contentServiceUnderTest.getContent(1L);
+        contentServiceUnderTest.deleteContent(1L);
+        assertThat(contentServiceUnderTest.getContent(1L)).isNull();
+
+        then(contentRepository).should(times(2)).findById(ArgumentMatchers.eq(1L));
+        then(contentRepository).should().deleteContentById(1L);
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenContentWhenUpdateContentThenSingleStatement(){
+        ContentVo inputVo = ContentVo.builder().title("MI-1").description("Test").yearOfRelease(2004L).build();
+        given(contentRepository.updateContentById(1L, "MI-1", "Test", 2004L)).willReturn(1);
+
+        contentServiceUnderTest.updateContent(1L, inputVo);
+
+        then(contentRepository).should().updateContentById(1L, "MI-1", "Test", 2004L);
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenInvalidIdWhenUpdateContentThenException(){
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        given(contentRepository.updateContentById(10L, "MI-1", null, 2004L)).willReturn(0);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.updateContent(10L, inputVo));
+        assertEquals("Content not present", exception.getMessage());
+
+        then(contentRepository).should().updateContentById(10L, "MI-1", null, 2004L);
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenInvalidIdWhenDeleteContentThenException(){
+        given(contentRepository.deleteContentById(10L)).willReturn(0);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.deleteContent(10L));
+        assertEquals("Content not present", exception.getMessage());
+
+        then(contentRepository).should().deleteContentById(10L);
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
     @Test
     public void givenContentWhenAddContentThenContentAdded(){
         Content content = Content.builder().id(1L).title("MI-1").yearOfRelease(2004L).build();
@@ -112,10 +360,340 @@ public class ContentServiceTest {
         ArgumentCaptor<Content> captor = ArgumentCaptor.forClass(Content.class);
         then(contentRepository).should().save(captor.capture());
         Content capturedContent = captor.getValue();
-        assertThat(capturedContent).isEqualToComparingFieldByField(inputVo);
+        assertThat(capturedContent).isEqualToIgnoringGivenFields(inputVo, "updatedAt");
+
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenContentsWhenAddContentsThenCreatedUpdatedAndInvalidReported(){
+        contentProperties.getBulk().setBatchSize(2);
+        ContentVo newVo = ContentVo.builder().title("MI-4").yearOfRelease(2011L).build();
+        ContentVo existingVo = ContentVo.builder().id(1L).title("MI-1 Remastered").yearOfRelease(2004L).build();
+        ContentVo invalidVo = ContentVo.builder().yearOfRelease(2015L).build();
+        Content existing = Content.builder().id(1L).title("MI-1").yearOfRelease(2004L).build();
+
+        ConstraintViolation<ContentVo> violation = mock(ConstraintViolation.class);
+        Path path = mock(Path.class);
+        given(path.toString()).willReturn("title");
+        given(violation.getPropertyPath()).willReturn(path);
+        given(violation.getMessage()).willReturn("Title is mandatory");
+        given(validator.validate(newVo)).willReturn(Collections.emptySet());
+        given(validator.validate(existingVo)).willReturn(Collections.emptySet());
+        given(validator.validate(invalidVo)).willReturn(Collections.singleton(violation));
+        given(contentRepository.findAllById(Arrays.asList(1L))).willReturn(Arrays.asList(existing));
+
+        List<BulkResultVo> results = contentServiceUnderTest.addContents(Arrays.asList(newVo, existingVo, invalidVo));
+
+        assertThat(results).extracting(BulkResultVo::getStatus).containsExactly(BulkResultVo.Status.CREATED, BulkResultVo.Status.UPDATED, BulkResultVo.Status.INVALID);
+        assertThat(results).extracting(BulkResultVo::getIndex).containsExactly(0, 1, 2);
+        assertThat(results.get(2).getErrors()).extracting("fieldName").containsExactly("title");
+        assertEquals("MI-1 Remastered", existing.getTitle());
+
+        ArgumentCaptor<Content> captor = ArgumentCaptor.forClass(Content.class);
+        then(entityManager).should(times(1)).persist(captor.capture());
+        assertEquals("MI-4", captor.getValue().getTitle());
+        then(entityManager).should(times(2)).flush();
+        then(entityManager).should(times(2)).clear();
+        then(contentRepository).should().findAllById(Arrays.asList(1L));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenTooManyContentsWhenAddContentsThenException(){
+        contentProperties.getBulk().setMaxItems(1);
+        List<ContentVo> vos = Arrays.asList(ContentVo.builder().title("MI-1").build(), ContentVo.builder().title("MI-2").build());
+
+        assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.addContents(vos));
+
+        then(contentRepository).shouldHaveNoMoreInteractions();
+        then(entityManager).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenStaleVersionWhenUpdateContentThenOptimisticLockingFailure(){
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        given(contentRepository.updateContentByIdAndVersion(1L, 2L, "MI-1", null, 2004L)).willReturn(0);
+        given(contentRepository.existsById(1L)).willReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> contentServiceUnderTest.updateContent(1L, inputVo, 2L));
+
+        then(contentRepository).should().updateContentByIdAndVersion(1L, 2L, "MI-1", null, 2004L);
+        then(contentRepository).should().existsById(1L);
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenMissingIdWhenDeleteContentWithVersionThenException(){
+        given(contentRepository.deleteContentByIdAndVersion(10L, 0L)).willReturn(0);
+        given(contentRepository.existsById(10L)).willReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.deleteContent(10L, 0L));
+        assertEquals("Content not present", exception.getMessage());
+
+    }
+
+    @Test
+    public void givenIndexedContentsWhenSearchContentsThenRankedContents(){
+        contentSearchIndex.put(1L, "Mission Impossible", "Spy thriller");
+        contentSearchIndex.put(2L, "Spy Game", "Spy thriller");
+        contentSearchIndex.put(3L, "Toy Story", "Animated");
+        List<ContentVo> contents = Arrays.asList(new ContentVo(1L, "Mission Impossible", "Spy thriller", 1996L), new ContentVo(2L, "Spy Game", "Spy thriller", 2001L));
+        given(contentRepository.findAllProjectedByIdIn(Arrays.asList(2L, 1L))).willReturn(contents);
+
+        List<ContentVo> contentVoList = contentServiceUnderTest.searchContents("spy", null, null);
+        assertThat(contentVoList).extracting(ContentVo::getId).containsExactly(2L, 1L);
+
+        then(contentRepository).should().findAllProjectedByIdIn(Arrays.asList(2L, 1L));
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenNoMatchWhenSearchContentsThenNoQuery(){
+        contentSearchIndex.put(1L, "Mission Impossible", null);
+
+        assertThat(contentServiceUnderTest.searchContents("toy", 0, 10)).isEmpty();
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenContentWritesWhenSearchContentsThenIndexKeptCurrent(){
+        given(contentRepository.save(isA(Content.class))).willReturn(Content.builder().id(5L).title("Top Gun").yearOfRelease(1986L).build());
+        given(contentRepository.updateContentById(5L, "Top Gun Maverick", null, 2022L)).willReturn(1);
+        given(contentRepository.deleteContentById(5L)).willReturn(1);
+
+        contentServiceUnderTest.addContent(ContentVo.builder().title("Top Gun").yearOfRelease(1986L).build());
+        assertThat(contentSearchIndex.search("gun", 0, 10)).containsExactly(5L);
+
+        contentServiceUnderTest.updateContent(5L, ContentVo.builder().title("Top Gun Maverick").yearOfRelease(2022L).build());
+        assertThat(contentSearchIndex.search("maverick", 0, 10)).containsExactly(5L);
+
+        contentServiceUnderTest.deleteContent(5L);
+        assertThat(contentSearchIndex.search("gun", 0, 10)).isEmpty();
+
+    }
+
+    @Test
+    public void givenSnapshotWhenGetContentsSnapshotTwiceThenRepositoryHitOnce() throws IOException {
+        List<ContentVo> contentList = Collections.singletonList(new ContentVo(1L, "MI-1", null, 2004L));
+        given(contentRepository.findAllProjectedBy()).willReturn(contentList);
+
+        ContentListSnapshots.Snapshot first = contentServiceUnderTest.getContentsSnapshot(null);
+        ContentListSnapshots.Snapshot second = contentServiceUnderTest.getContentsSnapshot(null);
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first.getJson(), StandardCharsets.UTF_8)).isEqualTo("[{\"id\":1,\"title\":\"MI-1\",\"description\":null,\"yearOfRelease\":2004}]");
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzip()))) {
+            assertThat(gzip).hasSameContentAs(new ByteArrayInputStream(first.getJson()));
+        }
+        then(contentRepository).should().findAllProjectedBy();
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenSnapshotWhenContentDeletedThenSnapshotRebuilt(){
+        given(contentRepository.findAllProjectedByYearOfReleaseAfter(2000L)).willReturn(Collections.singletonList(new ContentVo(1L, "MI-1", null, 2004L)), Collections.emptyList());
+        given(contentRepository.deleteContentById(1L)).willReturn(1);
+
+        ContentListSnapshots.Snapshot before = contentServiceUnderTest.getContentsSnapshot(2000L);
+        contentServiceUnderTest.deleteContent(1L);
+        ContentListSnapshots.Snapshot after = contentServiceUnderTest.getContentsSnapshot(2000L);
+
+        assertThat(after.getETag()).isNotEqualTo(before.getETag());
+        assertThat(after.getJson()).isEqualTo("[]".getBytes(StandardCharsets.UTF_8));
+        then(contentRepository).should(times(2)).findAllProjectedByYearOfReleaseAfter(2000L);
+
+    }
 
+    @Test
+    public void givenChangesWhenGetChangesThenBatchWithTombstonesAndNextSince(){
+        Instant changedAt = Instant.now().minusSeconds(60);
+        List<ContentChange> changes = Arrays.asList(
+                ContentChange.builder().seq(11L).contentId(1L).operation(ContentChange.Operation.CREATED).title("MI-1").yearOfRelease(2002L).changedAt(changedAt).build(),
+                ContentChange.builder().seq(12L).contentId(1L).operation(ContentChange.Operation.UPDATED).title("MI-1 Remastered").yearOfRelease(2003L).changedAt(changedAt).build(),
+                ContentChange.builder().seq(13L).contentId(2L).operation(ContentChange.Operation.DELETED).changedAt(changedAt).build());
+        given(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(10L, PageRequest.of(0, 3))).willReturn(changes);
+
+        ContentChangePageVo page = contentServiceUnderTest.getChanges(10L, 3);
+
+        assertThat(page.getChanges()).extracting(ContentChangeVo::getSeq).containsExactly(11L, 12L, 13L);
+        assertThat(page.getChanges().get(1).getContent()).isEqualTo(ContentVo.builder().id(1L).title("MI-1 Remastered").yearOfRelease(2003L).build());
+        assertThat(page.getChanges().get(2).getId()).isEqualTo(2L);
+        assertThat(page.getChanges().get(2).getContent()).isNull();
+        assertThat(page.getNextSince()).isEqualTo(13L);
+
+    }
+
+    @Test
+    public void givenUnsequencedChangesWhenGetChangesThenSequencedBeforeRead(){
+        given(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 50))).willReturn(Collections.emptyList());
+
+        contentServiceUnderTest.getChanges(null, null);
+
+        InOrder inOrder = inOrder(contentChangeSequencer, contentChangeRepository);
+        inOrder.verify(contentChangeSequencer).sequence();
+        inOrder.verify(contentChangeRepository).findBySeqGreaterThanOrderBySeqAsc(0L, PageRequest.of(0, 50));
+
+    }
+
+    @Test
+    public void givenNoNewChangesWhenGetChangesThenSameSinceReturned(){
+        given(contentChangeRepository.findBySeqGreaterThanOrderBySeqAsc(42L, PageRequest.of(0, 50))).willReturn(Collections.emptyList());
+
+        ContentChangePageVo page = contentServiceUnderTest.getChanges(42L, null);
+
+        assertThat(page.getChanges()).isEmpty();
+        assertThat(page.getNextSince()).isEqualTo(42L);
+
+    }
+
+    @Test
+    public void givenNegativeSinceWhenGetChangesThenException(){
+        assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.getChanges(-1L, null));
+        then(contentChangeRepository).shouldHaveNoMoreInteractions();
+        then(contentChangeSequencer).shouldHaveNoInteractions();
+    }
+
+    @Test
+    public void givenContentWritesWhenWrittenThenChangesLoggedWithTombstone(){
+        given(contentRepository.updateContentById(1L, "MI-1", "Test", 2004L)).willReturn(1);
+        given(contentRepository.deleteContentById(1L)).willReturn(1);
+
+        contentServiceUnderTest.updateContent(1L, ContentVo.builder().title("MI-1").description("Test").yearOfRelease(2004L).build());
+        contentServiceUnderTest.deleteContent(1L);
+
+        ArgumentCaptor<ContentChange> captor = ArgumentCaptor.forClass(ContentChange.class);
+        then(contentChangeRepository).should(times(2)).save(captor.capture());
+        ContentChange update = captor.getAllValues().get(0);
+        assertThat(update.getOperation()).isEqualTo(ContentChange.Operation.UPDATED);
+        assertThat(update.getContentId()).isEqualTo(1L);
+        assertThat(update.getTitle()).isEqualTo("MI-1");
+        ContentChange tombstone = captor.getAllValues().get(1);
+        assertThat(tombstone.getOperation()).isEqualTo(ContentChange.Operation.DELETED);
+        assertThat(tombstone.getContentId()).isEqualTo(1L);
+        assertThat(tombstone.getTitle()).isNull();
+        assertThat(tombstone.getChangedAt()).isNotNull();
+
+    }
+
+    @Test
+    public void givenFailedWriteWhenUpdateContentThenNoChangeLogged(){
+        given(contentRepository.updateContentById(10L, "MI-1", null, 2004L)).willReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.updateContent(10L, ContentVo.builder().title("MI-1").yearOfRelease(2004L).build()));
+
+        then(contentChangeRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenCachedAndUncachedIdsWhenGetContentsByIdThenMissesQueriedInChunksAndRequestOrderKept(){
+        contentProperties.getBatchGet().setChunkSize(2);
+        List<ContentVo> stored = Arrays.asList(new ContentVo(1L, "MI-1", null, 2002L), new ContentVo(2L, "MI-2", null, 2005L), new ContentVo(3L, "MI-3", null, 2010L));
+        given(contentRepository.findById(2L)).willReturn(Optional.of(Content.builder().id(2L).title("MI-2").yearOfRelease(2005L).build()));
+        given(contentRepository.findAllProjectedByIdIn(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return stored.stream().filter(vo -> ids.contains(vo.getId())).collect(Collectors.toList());
+        });
+        contentServiceUnderTest.getContent(2L);
+
+        ContentBatchVo batch = contentServiceUnderTest.getContentsById(Arrays.asList(3L, 2L, 9L, 1L, 3L));
+
+        assertThat(batch.getContents()).extracting(ContentVo::getId).containsExactly(3L, 2L, 1L);
+        assertThat(batch.getMissing()).containsExactly(9L);
+        ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+        then(contentRepository).should(times(2)).findAllProjectedByIdIn(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(2));
+        assertThat(captor.getAllValues().stream().flatMap(Collection::stream)).containsExactlyInAnyOrder(3L, 9L, 1L);
+
+        contentServiceUnderTest.getContentsById(Arrays.asList(1L, 9L));
+        then(contentRepository).should().findById(2L);
         then(contentRepository).shouldHaveNoMoreInteractions();
 
     }
 
+    @Test
+    public void givenTooManyIdsWhenGetContentsByIdThenException(){
+        contentProperties.getBatchGet().setMaxIds(2);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> contentServiceUnderTest.getContentsById(Arrays.asList(1L, 2L, 3L)));
+        assertEquals("At most 2 contents can be fetched at once", exception.getMessage());
+
+        then(contentRepository).shouldHaveNoMoreInteractions();
+
+    }
+
+    @Test
+    public void givenShardsWhenGetContentThenShardQueried(){
+        contentServiceUnderTest = createService(Optional.of(contentShards));
+        given(contentShards.findById(1025L)).willReturn(new ContentVo(1025L, "MI-1", null, 2004L));
+
+        ContentVo vo = contentServiceUnderTest.getContent(1025L);
+        assertEquals("MI-1", vo.getTitle());
+
+        then(contentRepository).shouldHaveNoInteractions();
+
+    }
+
+    @Test
+    public void givenShardsWhenAddAndDeleteContentThenShardWrittenAndPrimaryLogUntouched(){
+        contentServiceUnderTest = createService(Optional.of(contentShards));
+        ContentVo inputVo = ContentVo.builder().title("MI-1").yearOfRelease(2004L).build();
+        given(contentShards.insert(inputVo)).willReturn(new ContentVo(1025L, "MI-1", null, 2004L, 0L));
+        given(contentShards.delete(1025L, 0L)).willReturn(1);
+
+        ContentVo written = contentServiceUnderTest.addContent(inputVo);
+        assertEquals(1025L, written.getId());
+        contentServiceUnderTest.deleteContent(1025L, 0L);
+
+        then(contentRepository).shouldHaveNoInteractions();
+        then(contentChangeRepository).shouldHaveNoInteractions();
+
+    }
+
+    @Test
+    public void givenShardsWhenAddContentsThenValidContentsWrittenByShardsAsReadBack(){
+        contentServiceUnderTest = createService(Optional.of(contentShards));
+        ContentVo newVo = ContentVo.builder().title("MI-4").yearOfRelease(2011L).build();
+        ContentVo existingVo = ContentVo.builder().id(1025L).title("MI-1 Remastered").yearOfRelease(2004L).build();
+        given(contentShards.writeAll(Arrays.asList(newVo, existingVo))).willReturn(Arrays.asList(
+                new ContentShards.Written(new ContentVo(2049L, "MI-4", null, 2011L, 0L), true),
+                new ContentShards.Written(new ContentVo(1025L, "MI-1 Remastered", null, 2004L, 3L), false)));
+
+        List<BulkResultVo> results = contentServiceUnderTest.addContents(Arrays.asList(newVo, existingVo));
+
+        assertThat(results).extracting(BulkResultVo::getStatus).containsExactly(BulkResultVo.Status.CREATED, BulkResultVo.Status.UPDATED);
+        assertThat(results).extracting(BulkResultVo::getId).containsExactly(2049L, 1025L);
+
+        then(contentRepository).shouldHaveNoInteractions();
+        then(entityManager).shouldHaveNoInteractions();
+
+    }
+
+    @Test
+    public void givenShardsWhenGetChangesThenShardChangesReadUpToSequencedPosition(){
+        contentServiceUnderTest = createService(Optional.of(contentShards));
+        List<ContentChangeVo> changes = Arrays.asList(
+                ContentChangeVo.builder().seq(11L).id(1025L).operation(ContentChange.Operation.CREATED).build(),
+                ContentChangeVo.builder().seq(12L).id(1026L).operation(ContentChange.Operation.DELETED).build());
+        given(contentChangeSequencer.sequence()).willReturn(14L);
+        given(contentShards.findChanges(10L, 14L, 2)).willReturn(changes);
+
+        ContentChangePageVo page = contentServiceUnderTest.getChanges(10L, 2);
+
+        assertThat(page.getChanges()).extracting(ContentChangeVo::getSeq).containsExactly(11L, 12L);
+        assertThat(page.getNextSince()).isEqualTo(12L);
+        then(contentChangeRepository).shouldHaveNoInteractions();
+
+    }
+
 }
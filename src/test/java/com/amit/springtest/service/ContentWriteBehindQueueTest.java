@@ -0,0 +1,80 @@
+package com.amit.springtest.service;
+
+import com.amit.springtest.bean.BulkResultVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.config.ContentProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ContentWriteBehindQueueTest {
+
+    @Mock
+    private ContentService contentService;
+
+    private final ContentProperties contentProperties = new ContentProperties();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void initialize() {
+        contentProperties.getWriteBehind().setQueueCapacity(2);
+        contentProperties.getWriteBehind().setBatchSize(2);
+        contentProperties.getWriteBehind().setFlushInterval(Duration.ofMillis(20));
+        contentProperties.getWriteBehind().setOfferTimeout(Duration.ofMillis(1));
+    }
+
+    @Test
+    public void givenFullQueueWhenEnqueueThenRejected() {
+
+        ContentWriteBehindQueue queueUnderTest = new ContentWriteBehindQueue(contentService, contentProperties, registry);
+        queueUnderTest.enqueue(ContentVo.builder().title("MI-1").build());
+        queueUnderTest.enqueue(ContentVo.builder().title("MI-2").build());
+
+        assertThatThrownBy(() -> queueUnderTest.enqueue(ContentVo.builder().title("MI-3").build()))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(registry.get("content.write-behind.queue").gauge().value()).isEqualTo(2.0);
+        assertThat(registry.get("content.write-behind.rejected").counter().count()).isEqualTo(1.0);
+        then(contentService).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    public void givenQueuedContentsWhenStoppedThenWrittenInBatches() throws InterruptedException {
+
+        contentProperties.getWriteBehind().setOfferTimeout(Duration.ofSeconds(5));
+        ContentVo first = ContentVo.builder().title("MI-1").build();
+        ContentVo second = ContentVo.builder().title("MI-2").build();
+        ContentVo third = ContentVo.builder().title("MI-3").build();
+        given(contentService.addContents(anyList())).willReturn(Collections.singletonList(BulkResultVo.builder().status(BulkResultVo.Status.CREATED).build()));
+
+        ContentWriteBehindQueue queueUnderTest = new ContentWriteBehindQueue(contentService, contentProperties, registry);
+        queueUnderTest.enqueue(first);
+        queueUnderTest.enqueue(second);
+        queueUnderTest.start();
+        queueUnderTest.enqueue(third);
+        queueUnderTest.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ContentVo>> captor = ArgumentCaptor.forClass(List.class);
+        then(contentService).should(times(2)).addContents(captor.capture());
+        assertThat(captor.getAllValues()).containsExactly(Arrays.asList(first, second), Collections.singletonList(third));
+        assertThat(queueUnderTest.size()).isZero();
+        assertThat(registry.get("content.write-behind.flush").timer().count()).isEqualTo(2L);
+    }
+
+}
@@ -0,0 +1,262 @@
+package com.amit.springtest.shard;
+
+import com.amit.springtest.bean.ContentChangeVo;
+import com.amit.springtest.bean.ContentVo;
+import com.amit.springtest.entity.ContentChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases with the test schema stand in for the shards.
+ */
+public class ContentShardsTest {
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    private ContentShards contentShards;
+
+    @BeforeEach
+    public void createShards() {
+        for (int i = 0; i < 2; i++)
+            databases.add(new EmbeddedDatabaseBuilder().generateUniqueName(true).setType(EmbeddedDatabaseType.H2).addScript("schema.sql").build());
+        contentShards = new ContentShards(new ArrayList<DataSource>(databases), "select next value for content_seq", "select next value for content_change_seq", Executors.newFixedThreadPool(2));
+    }
+
+    @AfterEach
+    public void closeShards() {
+        contentShards.close();
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    public void givenInsertsWhenInsertedThenSpreadAcrossShardsWithShardInId(){
+        ContentVo first = contentShards.insert(ContentVo.builder().title("MI-1").yearOfRelease(2002L).build());
+        ContentVo second = contentShards.insert(ContentVo.builder().title("MI-2").yearOfRelease(2005L).build());
+
+        assertEquals((1000L << ContentShards.SHARD_BITS), first.getId().longValue());
+        assertEquals((1000L << ContentShards.SHARD_BITS) | 1, second.getId().longValue());
+        assertEquals(0L, first.getVersion().longValue());
+        assertEquals(1, rows(0));
+        assertEquals(1, rows(1));
+        assertEquals("MI-2", contentShards.findById(second.getId()).getTitle());
+        assertTrue(contentShards.existsById(first.getId()));
+        assertNull(contentShards.findById(first.getId() + 2));
+
+    }
+
+    @Test
+    public void givenLegacyIdsWhenFindByIdThenPlacedByModulo(){
+        legacy(0, 4L, "MI-4", 2015L);
+        legacy(1, 5L, "MI-5", 2018L);
+
+        assertEquals(0, contentShards.shardOf(4L));
+        assertEquals(1, contentShards.shardOf(5L));
+        assertEquals("MI-4", contentShards.findById(4L).getTitle());
+        assertEquals("MI-5", contentShards.findById(5L).getTitle());
+
+    }
+
+    @Test
+    public void givenContentsOnBothShardsWhenFindAllThenMergedById(){
+        legacy(0, 2L, "MI-2", 2005L);
+        legacy(1, 1L, "MI-1", 2002L);
+        legacy(1, 3L, "MI-3", 2010L);
+        legacy(0, 4L, "MI-4", 2015L);
+
+        assertThat(contentShards.findAll()).extracting(ContentVo::getId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(contentShards.findAllByYearOfReleaseAfter(2004L)).extracting(ContentVo::getId).containsExactly(2L, 3L, 4L);
+        assertThat(contentShards.findAllByIdIn(Arrays.asList(4L, 1L, 9L))).extracting(ContentVo::getId).containsExactlyInAnyOrder(1L, 4L);
+
+    }
+
+    @Test
+    public void givenYearRangeWhenFindAllByYearOfReleaseBetweenThenFirstLimitByYearAndId(){
+        legacy(0, 2L, "MI-2", 2005L);
+        legacy(0, 4L, "MI-4", 2005L);
+        legacy(1, 1L, "MI-1", 2010L);
+        legacy(1, 3L, "MI-3", 2005L);
+        legacy(1, 5L, "MI-5", 2020L);
+
+        assertThat(contentShards.findAllByYearOfReleaseBetween(2005L, 2010L, 3)).extracting(ContentVo::getId).containsExactly(2L, 3L, 4L);
+
+    }
+
+    @Test
+    public void givenAfterWhenFindByIdGreaterThanThenKeysetPageAcrossShards(){
+        for (long id = 1; id <= 6; id++)
+            legacy((int) (id % 2), id, "MI-" + id, 2000L + id);
+
+        assertThat(contentShards.findByIdGreaterThan(0L, 3)).extracting(ContentVo::getId).containsExactly(1L, 2L, 3L);
+        assertThat(contentShards.findByIdGreaterThan(3L, 3)).extracting(ContentVo::getId).containsExactly(4L, 5L, 6L);
+        assertThat(contentShards.findByIdGreaterThan(6L, 3)).isEmpty();
+
+    }
+
+    @Test
+    public void givenSmallPagesWhenIterateAllThenEveryContentInIdOrder(){
+        for (long id = 1; id <= 7; id++)
+            legacy((int) (id % 2), id, "MI-" + id, 2000L + id);
+
+        List<Long> ids = new ArrayList<>();
+        Iterator<ContentVo> contents = contentShards.iterateAll(2);
+        contents.forEachRemaining(vo -> ids.add(vo.getId()));
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+
+    }
+
+    @Test
+    public void givenVersionsWhenUpdateAndDeleteThenOnlyCurrentVersionWritten(){
+        ContentVo written = contentShards.insert(ContentVo.builder().title("MI-1").yearOfRelease(2002L).build());
+        ContentVo update = ContentVo.builder().title("MI-1 Ghost Protocol").yearOfRelease(2011L).build();
+
+        assertEquals(1, contentShards.update(written.getId(), update, 0L));
+        assertEquals(0, contentShards.update(written.getId(), update, 0L));
+        ContentVo updated = contentShards.findById(written.getId());
+        assertEquals("MI-1 Ghost Protocol", updated.getTitle());
+        assertEquals(1L, updated.getVersion().longValue());
+
+        assertEquals(0, contentShards.delete(written.getId(), 0L));
+        assertEquals(1, contentShards.delete(written.getId(), 1L));
+        assertFalse(contentShards.existsById(written.getId()));
+
+    }
+
+    @Test
+    public void givenExistingAndNewContentsWhenWriteAllThenUpdatedRowsReadBackAndOthersCreated(){
+        legacy(0, 2L, "MI-2", 2005L);
+        ContentVo update = ContentVo.builder().id(2L).title("MI-2 Remastered").yearOfRelease(2005L).build();
+        ContentVo create = ContentVo.builder().title("MI-3").yearOfRelease(2010L).build();
+        ContentVo unknownId = ContentVo.builder().id(7L).title("MI-7").yearOfRelease(2023L).build();
+
+        List<ContentShards.Written> written = contentShards.writeAll(Arrays.asList(update, create, unknownId));
+
+        assertFalse(written.get(0).isCreated());
+        assertEquals("MI-2 Remastered", written.get(0).getContent().getTitle());
+        assertEquals(1L, written.get(0).getContent().getVersion().longValue());
+        assertTrue(written.get(1).isCreated());
+        assertEquals(0L, written.get(1).getContent().getVersion().longValue());
+        assertTrue(written.get(2).isCreated());
+        assertNotEquals(7L, written.get(2).getContent().getId().longValue());
+        assertEquals(1, contentShards.shardOf(written.get(2).getContent().getId()));
+        assertEquals(3, rows(0) + rows(1));
+
+    }
+
+    /**
+     * There is no transaction across shards: the failing shard rolls back its whole part, the shard written before it keeps its part.
+     */
+    @Test
+    public void givenFailingShardWhenWriteAllThenOnlyThatShardRolledBack(){
+        legacy(0, 2L, "MI-2", 2005L);
+        legacy(1, 3L, "MI-3", 2010L);
+        ContentVo firstShard = ContentVo.builder().id(2L).title("MI-2 Remastered").yearOfRelease(2005L).build();
+        ContentVo secondShard = ContentVo.builder().id(3L).title("MI-3 Remastered").yearOfRelease(2010L).build();
+        ContentVo failing = ContentVo.builder().id(5L).yearOfRelease(2018L).build();
+
+        assertThrows(DataIntegrityViolationException.class, () -> contentShards.writeAll(Arrays.asList(firstShard, secondShard, failing)));
+
+        assertEquals("MI-2 Remastered", contentShards.findById(2L).getTitle());
+        assertEquals("MI-3", contentShards.findById(3L).getTitle());
+        assertEquals(1, rows(1));
+        assertEquals(1, changes(0));
+        assertEquals(0, changes(1));
+
+    }
+
+    @Test
+    public void givenWritesOnBothShardsWhenSequencedThenChangesMergedByPosition(){
+        ContentVo first = contentShards.insert(ContentVo.builder().title("MI-1").yearOfRelease(2002L).build());
+        ContentVo second = contentShards.insert(ContentVo.builder().title("MI-2").yearOfRelease(2005L).build());
+        contentShards.update(first.getId(), ContentVo.builder().title("MI-1 Remastered").yearOfRelease(2002L).build(), 0L);
+        contentShards.delete(second.getId(), 0L);
+
+        assertEquals(4L, contentShards.sequenceChanges(0L, 100));
+
+        List<ContentChangeVo> changes = contentShards.findChanges(0L, 4L, 10);
+        assertThat(changes).extracting(ContentChangeVo::getSeq).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(changes).extracting(ContentChangeVo::getOperation).containsExactly(ContentChange.Operation.CREATED,
+                ContentChange.Operation.UPDATED, ContentChange.Operation.CREATED, ContentChange.Operation.DELETED);
+        assertThat(changes).extracting(ContentChangeVo::getId).containsExactly(first.getId(), first.getId(), second.getId(), second.getId());
+        assertEquals("MI-1 Remastered", changes.get(1).getContent().getTitle());
+        assertNull(changes.get(3).getContent());
+        assertThat(contentShards.findChanges(1L, 3L, 10)).extracting(ContentChangeVo::getSeq).containsExactly(2L, 3L);
+        assertThat(contentShards.findChanges(0L, 4L, 2)).extracting(ContentChangeVo::getSeq).containsExactly(1L, 2L);
+
+    }
+
+    /**
+     * A run whose position row update was lost left position 1 on a shard, the next run starts above it.
+     */
+    @Test
+    public void givenPositionsAboveLastSeqWhenSequencedThenNotHandedOutAgain(){
+        contentShards.insert(ContentVo.builder().title("MI-1").yearOfRelease(2002L).build());
+        assertEquals(1L, contentShards.sequenceChanges(0L, 100));
+        contentShards.insert(ContentVo.builder().title("MI-2").yearOfRelease(2005L).build());
+
+        assertEquals(2L, contentShards.sequenceChanges(0L, 100));
+        assertThat(contentShards.findChanges(0L, 2L, 10)).extracting(ContentChangeVo::getSeq).containsExactly(1L, 2L);
+
+    }
+
+    @Test
+    public void givenNoShardsWhenCreatedThenException(){
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new ContentShards(new ArrayList<>(), "select next value for content_seq", "select next value for content_change_seq", Executors.newFixedThreadPool(1)));
+        assertEquals("At least one shard is required", exception.getMessage());
+    }
+
+    @Test
+    public void givenSaturatedFanOutWhenFindAllThenRejected() throws InterruptedException {
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        saturated.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        saturated.execute(() -> { });
+        ContentShards busy = new ContentShards(new ArrayList<DataSource>(databases), "select next value for content_seq", "select next value for content_change_seq", saturated);
+
+        assertThrows(RejectedExecutionException.class, busy::findAll);
+
+        release.countDown();
+        saturated.shutdown();
+        assertTrue(saturated.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private void legacy(int shard, Long id, String title, Long yearOfRelease) {
+        new JdbcTemplate(databases.get(shard)).update("insert into content(id, title, year_of_release) values (?, ?, ?)", id, title, yearOfRelease);
+    }
+
+    private int rows(int shard) {
+        return new JdbcTemplate(databases.get(shard)).queryForObject("select count(*) from content", Integer.class);
+    }
+
+    private int changes(int shard) {
+        return new JdbcTemplate(databases.get(shard)).queryForObject("select count(*) from content_change", Integer.class);
+    }
+
+}
@@ -1 +1,3 @@
-delete from content;
\ No newline at end of file
+delete from content;
+delete from content_change;
+update content_change_position set last_seq = 0;
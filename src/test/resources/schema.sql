@@ -3,5 +3,35 @@ create table content (
   title varchar(100) not null,
   description varchar(1000),
   year_of_release long,
+  version long default 0 not null,
+  updated_at timestamp,
   primary key (id)
-);
\ No newline at end of file
+);
+
+create index idx_content_year_of_release on content (year_of_release, id);
+
+create sequence content_seq start with 1000 increment by 50;
+
+create table content_change (
+  id long not null,
+  seq long,
+  content_id long not null,
+  operation varchar(10) not null,
+  title varchar(100),
+  description varchar(1000),
+  year_of_release long,
+  changed_at timestamp not null,
+  primary key (id)
+);
+
+create unique index idx_content_change_seq on content_change (seq);
+
+create sequence content_change_seq start with 1 increment by 50;
+
+create table content_change_position (
+  id int not null,
+  last_seq long not null,
+  primary key (id)
+);
+
+insert into content_change_position(id, last_seq) values (1, 0);